@@ -4,6 +4,7 @@ import static me.lauriichan.maven.pluginbase.util.SourceTransformerUtils.importC
 import static me.lauriichan.maven.pluginbase.util.SourceTransformerUtils.removeAnnotation;
 import static me.lauriichan.maven.pluginbase.util.SourceTransformerUtils.removeMethod;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
 
@@ -14,9 +15,11 @@ import org.jboss.forge.roaster.model.source.JavaClassSource;
 import org.jboss.forge.roaster.model.source.JavaSource;
 import org.jboss.forge.roaster.model.source.MethodSource;
 
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import me.lauriichan.maven.sourcemod.api.ISourceTransformer;
 import me.lauriichan.minecraft.pluginbase.config.Config;
+import me.lauriichan.minecraft.pluginbase.config.ConfigPath;
 import me.lauriichan.minecraft.pluginbase.config.ConfigValue;
 import me.lauriichan.minecraft.pluginbase.config.Configuration;
 import me.lauriichan.minecraft.pluginbase.config.IConfigExtension;
@@ -27,11 +30,88 @@ public class ConfigSourceTransformer implements ISourceTransformer {
     private static class ConfigField {
 
         private final FieldSource<JavaClassSource> field;
-        private final String name;
+        private final String section;
+        private final String key;
 
         public ConfigField(final FieldSource<JavaClassSource> field, final String name) {
             this.field = field;
-            this.name = name;
+            final int index = name.lastIndexOf('.');
+            this.section = index == -1 ? "" : name.substring(0, index);
+            this.key = name.substring(index + 1);
+        }
+
+        public String path() {
+            return section.isEmpty() ? key : section + '.' + key;
+        }
+
+    }
+
+    /**
+     * Declares a local variable for each config section the first time that a
+     * field of the section is accessed. A section is resolved relative to the
+     * closest parent section that was already resolved, so the generated code
+     * walks each part of the tree only once. Resolving the sections in field
+     * order keeps the key order of the saved config unchanged.
+     * <p>
+     * Sections that are created are only resolved once the first value is
+     * written into them, so that null values don't leave empty sections
+     * behind. In that case {@link #resolve(String)} returns an expression that
+     * resolves the section on first use instead of the variable itself.
+     */
+    private static class SectionResolver {
+
+        private final JavaClassSource clazz;
+        private final StringBuilder builder;
+        private final Object2ObjectOpenHashMap<String, String> pathConstants;
+        private final boolean create;
+
+        private final Object2ObjectOpenHashMap<String, String> variables = new Object2ObjectOpenHashMap<>();
+        private final Object2ObjectOpenHashMap<String, String> expressions = new Object2ObjectOpenHashMap<>();
+
+        public SectionResolver(final JavaClassSource clazz, final StringBuilder builder,
+            final Object2ObjectOpenHashMap<String, String> pathConstants, final boolean create) {
+            this.clazz = clazz;
+            this.builder = builder;
+            this.pathConstants = pathConstants;
+            this.create = create;
+        }
+
+        public String resolve(final String section) {
+            if (section.isEmpty()) {
+                return "configuration";
+            }
+            String variable = variables.get(section);
+            if (variable != null) {
+                return create ? expressions.get(section) : variable;
+            }
+            String parent = section;
+            String parentVariable = null;
+            int index;
+            while ((index = parent.lastIndexOf('.')) != -1) {
+                parent = parent.substring(0, index);
+                if ((parentVariable = variables.get(parent)) != null) {
+                    break;
+                }
+            }
+            final String relative = parentVariable == null ? section : section.substring(parent.length() + 1);
+            variable = "generated$section" + variables.size();
+            variables.put(section, variable);
+            if (create) {
+                final String parentExpression = parentVariable == null ? "configuration" : expressions.get(parent);
+                final String expression = "(" + variable + " != null ? " + variable + " : (" + variable + " = " + parentExpression
+                    + ".getConfiguration(" + pathExpression(clazz, pathConstants, relative) + ", true)))";
+                expressions.put(section, expression);
+                builder.append("\nConfiguration ").append(variable).append(" = null;");
+                return expression;
+            }
+            builder.append("\nfinal Configuration ").append(variable).append(" = ");
+            if (parentVariable == null) {
+                parentVariable = "configuration";
+            } else {
+                builder.append(parentVariable).append(" == null ? null : ");
+            }
+            builder.append(parentVariable).append(".getConfiguration(").append(pathExpression(clazz, pathConstants, relative)).append(");");
+            return variable;
         }
 
     }
@@ -68,7 +148,10 @@ public class ConfigSourceTransformer implements ISourceTransformer {
         clazz.setFinal(true);
         importClass(clazz, Objects.class);
         importClass(clazz, Configuration.class);
+        importClass(clazz, BitSet.class);
         clazz.addField("private volatile boolean generated$modified0 = false;");
+        // Bit index of each field is its index in configFields
+        clazz.addField("private final BitSet generated$dirty0 = new BitSet();");
         removeMethod(clazz, "isModified");
         clazz.addMethod("""
             @Override
@@ -82,18 +165,23 @@ public class ConfigSourceTransformer implements ISourceTransformer {
         loadBuilder.append("""
             @Override
             public void onLoad(Configuration configuration) throws Exception {
+                synchronized (this.generated$dirty0) {
+                    this.generated$dirty0.clear();
+                }
                 this.generated$modified0 = false;
             """);
         saveBuilder.append("""
             @Override
             public void onSave(Configuration configuration) throws Exception {
+                synchronized (this.generated$dirty0) {
+                    this.generated$dirty0.clear();
+                }
                 this.generated$modified0 = false;
             """);
 
-        ConfigField configField;
         FieldSource<JavaClassSource> field;
         for (int index = 0; index < configFields.size(); index++) {
-            field = (configField = configFields.get(index)).field;
+            field = configFields.get(index).field;
             field.setVisibility(Visibility.PRIVATE);
             field.setStatic(false);
             field.setVolatile(false);
@@ -103,12 +191,15 @@ public class ConfigSourceTransformer implements ISourceTransformer {
             removeMethod(clazz, field.getName());
             removeMethod(clazz, "default$" + field.getName());
             removeMethod(clazz, field.getName(), field.getType().getQualifiedNameWithGenerics());
-            addFieldMethod(clazz, field, """
+            addFieldMethod(clazz, field, index, """
                 public void %1$s(%2$s %1$s) {
                     if (Objects.equals(this.%1$s, %1$s)) {
                         return;
                     }
                     this.%1$s = %1$s;
+                    synchronized (this.generated$dirty0) {
+                        this.generated$dirty0.set(%3$d);
+                    }
                     this.generated$modified0 = true;
                 }
                 """, """
@@ -117,6 +208,9 @@ public class ConfigSourceTransformer implements ISourceTransformer {
                         return;
                     }
                     this.%1$s = %1$s;
+                    synchronized (this.generated$dirty0) {
+                        this.generated$dirty0.set(%3$d);
+                    }
                     this.generated$modified0 = true;
                 }
                 """);
@@ -130,45 +224,24 @@ public class ConfigSourceTransformer implements ISourceTransformer {
                     return this.generatedDefault$%1$s;
                 }
                 """);
-            if (automatic) {
-                if (index != 0) {
-                    loadBuilder.append('\n');
-                }
-                loadBuilder.append("this.").append(field.getName()).append(" = configuration.get");
-                final Type<JavaClassSource> type = field.getType();
-                boolean primitive = false;
-                if (type.isPrimitive()) {
-                    if (type.isType(boolean.class)) {
-                        loadBuilder.append("Boolean");
-                        primitive = true;
-                    } else if (type.isType(byte.class)) {
-                        loadBuilder.append("Byte");
-                        primitive = true;
-                    } else if (type.isType(short.class)) {
-                        loadBuilder.append("Short");
-                        primitive = true;
-                    } else if (type.isType(int.class)) {
-                        loadBuilder.append("Int");
-                        primitive = true;
-                    } else if (type.isType(long.class)) {
-                        loadBuilder.append("Long");
-                        primitive = true;
-                    } else if (type.isType(float.class)) {
-                        loadBuilder.append("Float");
-                        primitive = true;
-                    } else if (type.isType(double.class)) {
-                        loadBuilder.append("Double");
-                        primitive = true;
+        }
+        StringBuilder saveModifiedBuilder = null;
+        if (automatic) {
+            final Object2ObjectOpenHashMap<String, String> pathConstants = new Object2ObjectOpenHashMap<>();
+            appendLoad(clazz, loadBuilder, configFields, pathConstants);
+            appendSave(clazz, saveBuilder, configFields, pathConstants);
+            removeMethod(clazz, "onSaveModified", Configuration.class);
+            saveModifiedBuilder = new StringBuilder("""
+                @Override
+                public boolean onSaveModified(Configuration configuration) throws Exception {
+                    final BitSet generated$dirty;
+                    synchronized (this.generated$dirty0) {
+                        generated$dirty = (BitSet) this.generated$dirty0.clone();
+                        this.generated$dirty0.clear();
+                        this.generated$modified0 = false;
                     }
-                }
-                loadBuilder.append("(\"").append(configField.name).append('"');
-                if (!primitive) {
-                    loadBuilder.append(", ").append(type.getQualifiedName()).append(".class");
-                }
-                loadBuilder.append(", generatedDefault$").append(field.getName()).append(");");
-                saveBuilder.append("configuration.set(\"").append(configField.name).append("\", this.").append(field.getName())
-                    .append(");");
-            }
+                """);
+            appendSaveModified(clazz, saveModifiedBuilder, configFields, pathConstants);
         }
         MethodSource<JavaClassSource> method;
         if (loadBuilder != null) {
@@ -189,20 +262,123 @@ public class ConfigSourceTransformer implements ISourceTransformer {
                 method.setPrivate();
                 removeAnnotation(method, Override.class);
                 saveBuilder.append("\nuser$onSave(configuration);");
+                if (saveModifiedBuilder != null) {
+                    saveModifiedBuilder.append("\nuser$onSave(configuration);");
+                }
             }
             clazz.addMethod(saveBuilder.append("\n}").toString());
             saveBuilder = null;
         }
+        if (saveModifiedBuilder != null) {
+            clazz.addMethod(saveModifiedBuilder.append("\nreturn true;\n}").toString());
+        }
+    }
+
+    /*
+     * Generated load / save
+     */
+
+    private void appendLoad(final JavaClassSource clazz, final StringBuilder builder, final ObjectArrayList<ConfigField> configFields,
+        final Object2ObjectOpenHashMap<String, String> pathConstants) {
+        final SectionResolver resolver = new SectionResolver(clazz, builder, pathConstants, false);
+        for (final ConfigField configField : configFields) {
+            final FieldSource<JavaClassSource> field = configField.field;
+            final String section = resolver.resolve(configField.section);
+            builder.append("\nthis.").append(field.getName()).append(" = ");
+            if (!configField.section.isEmpty()) {
+                builder.append(section).append(" == null ? generatedDefault$").append(field.getName()).append(" : ");
+            }
+            builder.append(section).append(".get");
+            final Type<JavaClassSource> type = field.getType();
+            final String primitiveName = primitiveName(type);
+            if (primitiveName != null) {
+                builder.append(primitiveName);
+            }
+            builder.append("(\"").append(configField.key).append('"');
+            if (primitiveName == null) {
+                builder.append(", ").append(type.getQualifiedName()).append(".class");
+            }
+            builder.append(", generatedDefault$").append(field.getName()).append(");");
+        }
+    }
+
+    private void appendSave(final JavaClassSource clazz, final StringBuilder builder, final ObjectArrayList<ConfigField> configFields,
+        final Object2ObjectOpenHashMap<String, String> pathConstants) {
+        final SectionResolver resolver = new SectionResolver(clazz, builder, pathConstants, true);
+        for (final ConfigField configField : configFields) {
+            final String section = resolver.resolve(configField.section);
+            final String name = configField.field.getName();
+            if (configField.section.isEmpty() || primitiveName(configField.field.getType()) != null) {
+                builder.append('\n').append(section).append(".set(\"").append(configField.key).append("\", this.").append(name).append(");");
+                continue;
+            }
+            // Null only removes the key, like setting the full path did
+            builder.append("\nif (this.").append(name).append(" == null) {\nconfiguration.remove(")
+                .append(pathExpression(clazz, pathConstants, configField.path())).append(");\n} else {\n").append(section).append(".set(\"")
+                .append(configField.key).append("\", this.").append(name).append(");\n}");
+        }
+    }
+
+    private void appendSaveModified(final JavaClassSource clazz, final StringBuilder builder, final ObjectArrayList<ConfigField> configFields,
+        final Object2ObjectOpenHashMap<String, String> pathConstants) {
+        for (int index = 0; index < configFields.size(); index++) {
+            final ConfigField configField = configFields.get(index);
+            builder.append("\nif (generated$dirty.get(").append(index).append(")) {\nconfiguration.set(")
+                .append(pathExpression(clazz, pathConstants, configField.path())).append(", this.").append(configField.field.getName()).append(");\n}");
+        }
+    }
+
+    private static String pathExpression(final JavaClassSource clazz, final Object2ObjectOpenHashMap<String, String> pathConstants,
+        final String path) {
+        if (path.indexOf('.') == -1) {
+            return '"' + path + '"';
+        }
+        String constant = pathConstants.get(path);
+        if (constant == null) {
+            constant = "generated$path" + pathConstants.size();
+            pathConstants.put(path, constant);
+            importClass(clazz, ConfigPath.class);
+            clazz.addField("private static final ConfigPath %s = ConfigPath.of(\"%s\");".formatted(constant, path));
+        }
+        return constant;
+    }
+
+    private static String primitiveName(final Type<JavaClassSource> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        }
+        if (type.isType(boolean.class)) {
+            return "Boolean";
+        }
+        if (type.isType(byte.class)) {
+            return "Byte";
+        }
+        if (type.isType(short.class)) {
+            return "Short";
+        }
+        if (type.isType(int.class)) {
+            return "Int";
+        }
+        if (type.isType(long.class)) {
+            return "Long";
+        }
+        if (type.isType(float.class)) {
+            return "Float";
+        }
+        if (type.isType(double.class)) {
+            return "Double";
+        }
+        return null;
     }
 
     private void addFieldMethod(final JavaClassSource source, final FieldSource<JavaClassSource> field, final String content) {
         source.addMethod(content.formatted(field.getName(), field.getType().getQualifiedNameWithGenerics()));
     }
 
-    private void addFieldMethod(final JavaClassSource source, final FieldSource<JavaClassSource> field, final String complex,
-        final String primitive) {
+    private void addFieldMethod(final JavaClassSource source, final FieldSource<JavaClassSource> field, final int index,
+        final String complex, final String primitive) {
         source.addMethod((field.getType().isPrimitive() ? primitive : complex).formatted(field.getName(),
-            field.getType().getQualifiedNameWithGenerics()));
+            field.getType().getQualifiedNameWithGenerics(), index));
     }
 
 }
@@ -13,6 +13,7 @@ import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import me.lauriichan.laylib.command.ArgumentRegistry;
 import me.lauriichan.laylib.localization.MessageManager;
 import me.lauriichan.laylib.localization.source.AnnotationMessageSource;
@@ -23,6 +24,7 @@ import me.lauriichan.minecraft.pluginbase.ExtensionPoolImpl.ConditionMapImpl;
 import me.lauriichan.minecraft.pluginbase.command.argument.LoggerArgumentProvider;
 import me.lauriichan.minecraft.pluginbase.command.argument.UUIDArgument;
 import me.lauriichan.minecraft.pluginbase.config.ConfigManager;
+import me.lauriichan.minecraft.pluginbase.config.ConfigReloadResult;
 import me.lauriichan.minecraft.pluginbase.extension.IConditionMap;
 import me.lauriichan.minecraft.pluginbase.extension.IExtension;
 import me.lauriichan.minecraft.pluginbase.extension.IExtensionPool;
@@ -30,19 +32,31 @@ import me.lauriichan.minecraft.pluginbase.inventory.paged.PagedInventoryRegistry
 import me.lauriichan.minecraft.pluginbase.listener.IListenerExtension;
 import me.lauriichan.minecraft.pluginbase.message.IMessageExtension;
 import me.lauriichan.minecraft.pluginbase.message.provider.SimpleMessageProviderFactory;
+import me.lauriichan.minecraft.pluginbase.profiler.StartupProfiler;
 import me.lauriichan.minecraft.pluginbase.resource.ResourceManager;
 import me.lauriichan.minecraft.pluginbase.resource.source.FileDataSource;
+import me.lauriichan.minecraft.pluginbase.resource.source.GzipDataSource;
 import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
+import me.lauriichan.minecraft.pluginbase.resource.source.JarIndex;
+import me.lauriichan.minecraft.pluginbase.resource.source.KeyValueDataSource;
 import me.lauriichan.minecraft.pluginbase.resource.source.PathDataSource;
+import me.lauriichan.minecraft.pluginbase.resource.store.KeyValueStore;
 import me.lauriichan.minecraft.pluginbase.util.BukkitSimpleLogger;
 
 public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
 
+    private static final String STARTUP_REPORT_PATH = "data://startup-report.json";
+
     private volatile BukkitSimpleLogger logger;
     private volatile int state = 0;
 
+    private volatile StartupProfiler startupProfiler;
+
     private volatile Path jarRoot;
+    private volatile JarIndex jarIndex;
     private volatile ResourceManager resourceManager;
+    private final Object2ObjectOpenHashMap<String, KeyValueStore> keyValueStores = new Object2ObjectOpenHashMap<>();
+    private volatile ExtensionRegistry extensionRegistry;
 
     private volatile ArgumentRegistry argumentRegistry;
     private volatile MessageManager messageManager;
@@ -58,16 +72,18 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
         if (state != 0 && state != 4) {
             return;
         }
+        startupProfiler = new StartupProfiler();
         loadLogger();
         loadResourceRoot();
         loadResourceManager();
+        loadExtensionRegistry();
         state = 1;
-        try {
+        try (StartupProfiler.Section section = startupProfiler.section(StartupProfiler.CATEGORY_PHASE, "core.load")) {
             onCoreLoad();
         } catch (final Throwable throwable) {
             logger.error("Failed to load core part", throwable);
         }
-        try {
+        try (StartupProfiler.Section section = startupProfiler.section(StartupProfiler.CATEGORY_PHASE, "plugin.load")) {
             onPluginLoad();
         } catch (final Throwable throwable) {
             logger.error("Failed to load plugin part", throwable);
@@ -110,6 +126,11 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
             }
         }
         jarRoot = path;
+        try {
+            jarIndex = JarIndex.build(jarFile, resourcePreloadLimit());
+        } catch (final IOException e) {
+            logger.warning("Failed to index jar resources, reading them from the jar instead", e);
+        }
     }
 
     private final void loadResourceManager() {
@@ -118,8 +139,32 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
         }
         resourceManager = new ResourceManager(this);
         resourceManager.setDefault("jar");
-        resourceManager.register("jar", (plugin, path) -> new PathDataSource(plugin.jarRoot().resolveSibling(path)));
+        resourceManager.register("jar", (plugin, path) -> {
+            final Path resolved = plugin.jarRoot().resolveSibling(path);
+            final JarIndex index = plugin.jarIndex();
+            return new PathDataSource(resolved, index == null ? null : index.entry(resolved));
+        });
         resourceManager.register("data", (plugin, path) -> new FileDataSource(new File(plugin.getDataFolder(), path)));
+        final int compressionLevel = resourceCompressionLevel();
+        resourceManager.register("gz",
+            (plugin, path) -> new GzipDataSource(new FileDataSource(new File(plugin.getDataFolder(), path)), compressionLevel));
+        resourceManager.register("kv", (plugin, path) -> {
+            final int split = path.indexOf('/');
+            if (split <= 0 || split == path.length() - 1) {
+                throw new IllegalArgumentException("Key value resource '" + path + "' has to be in the format 'store/key'");
+            }
+            final String storeName = path.substring(0, split);
+            // Opened right away so that a broken store fails here, the source itself follows the store if it is opened again
+            plugin.keyValueStore(storeName);
+            return new KeyValueDataSource(() -> plugin.keyValueStore(storeName), path.substring(split + 1));
+        });
+    }
+
+    private final void loadExtensionRegistry() {
+        if (extensionRegistry != null) {
+            return;
+        }
+        extensionRegistry = new ExtensionRegistry(this);
     }
 
     @Override
@@ -129,17 +174,17 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
         }
         final boolean ready = state == 4;
         state = 2;
-        try {
+        try (StartupProfiler.Section section = startupProfiler.section(StartupProfiler.CATEGORY_PHASE, "core.enable")) {
             onCoreEnable();
         } catch (final Throwable throwable) {
             logger.error("Failed to enable core part", throwable);
         }
-        try {
+        try (StartupProfiler.Section section = startupProfiler.section(StartupProfiler.CATEGORY_PHASE, "plugin.enable")) {
             onPluginEnable();
         } catch (final Throwable throwable) {
             logger.error("Failed to enable plugin part", throwable);
         }
-        try {
+        try (StartupProfiler.Section section = startupProfiler.section(StartupProfiler.CATEGORY_PHASE, "core.post-enable")) {
             onCorePostEnable();
         } catch (final Throwable throwable) {
             logger.error("Failed to post-enable core part", throwable);
@@ -155,16 +200,29 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
         }
         state = 3;
         logger.info("Server is ready, lets do the final touches!");
-        try {
+        try (StartupProfiler.Section section = startupProfiler.section(StartupProfiler.CATEGORY_PHASE, "core.ready")) {
             onCoreReady();
         } catch (final Throwable throwable) {
             logger.error("Failed to ready core part", throwable);
         }
-        try {
+        try (StartupProfiler.Section section = startupProfiler.section(StartupProfiler.CATEGORY_PHASE, "plugin.ready")) {
             onPluginReady();
         } catch (final Throwable throwable) {
             logger.error("Failed to ready plugin part", throwable);
         }
+        writeStartupReport();
+    }
+
+    private final void writeStartupReport() {
+        startupProfiler.finish();
+        if (conditionMap != null && conditionMap.value(ConditionConstant.DISABLE_STARTUP_REPORT)) {
+            return;
+        }
+        try {
+            startupProfiler.write(getName(), resource(STARTUP_REPORT_PATH));
+        } catch (final Exception exception) {
+            logger.warning("Failed to write startup report to '{0}'", exception, STARTUP_REPORT_PATH);
+        }
     }
 
     @Override
@@ -194,12 +252,20 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
     }
 
     public final <E extends IExtension> IExtensionPool<E> extension(final Class<E> type, final boolean instantiate) {
-        return new ExtensionPoolImpl<>(this, type, instantiate);
+        return extensionRegistry.pool(type, instantiate);
     }
 
     public final <E extends IExtension> IExtensionPool<E> extension(final Class<? extends IExtension> extensionType, final Class<E> type,
         final boolean instantiate) {
-        return new ExtensionPoolImpl<>(this, extensionType, type, instantiate);
+        return extensionRegistry.pool(extensionType, type, instantiate);
+    }
+
+    public final <E extends IExtension> IExtensionPool<E> lazyExtension(final Class<E> type) {
+        return extensionRegistry.lazyPool(type);
+    }
+
+    public final <E extends IExtension> IExtensionPool<E> lazyExtension(final Class<? extends IExtension> extensionType, final Class<E> type) {
+        return extensionRegistry.lazyPool(extensionType, type);
     }
 
     /*
@@ -213,14 +279,18 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
 
     private final void onCoreEnable() throws Throwable {
         new BasePluginListener(this);
-        setupConditionMap();
-        registerMessages();
-        setupArgumentRegistry();
-        setupConfigs();
+        step("condition-map", this::setupConditionMap);
+        step("messages", this::registerMessages);
+        step("argument-registry", this::setupArgumentRegistry);
+        step("configs", this::setupConfigs);
     }
 
     private final void onCorePostEnable() throws Throwable {
-        registerListeners();
+        step("listeners", this::registerListeners);
+    }
+
+    private final void step(final String name, final StartupProfiler.IProfiledTask task) throws Throwable {
+        startupProfiler.profile(StartupProfiler.CATEGORY_STEP, name, task);
     }
 
     private final void setupConditionMap() {
@@ -237,7 +307,14 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
     
     private final void setupConfigs() {
         configManager = new ConfigManager(this);
-        configManager.reload();
+        final ConfigReloadResult result = conditionMap.value(ConditionConstant.PARALLEL_CONFIGS) ? configManager.reloadParallel()
+            : configManager.reload();
+        if (result.hasFailed()) {
+            logger.warning("Failed to load {0} of {1} config(s)", result.failed(), result.size());
+        }
+        if (conditionMap.value(ConditionConstant.WATCH_CONFIGS)) {
+            configManager.startWatching(task -> getServer().getScheduler().runTask(this, task));
+        }
     }
 
     private final void registerListeners() {
@@ -262,14 +339,38 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
     }
 
     private final void onCoreReady() throws Throwable {
-        pagedInventoryRegistry = new PagedInventoryRegistry(this);
+        step("paged-inventory-registry", () -> pagedInventoryRegistry = new PagedInventoryRegistry(this));
+        logger.info("Extension registry cached {0} extension index(es) ({1} hit(s), {2} miss(es))", extensionRegistry.size(),
+            extensionRegistry.hits(), extensionRegistry.misses());
     }
 
     private final void onCoreDisable() throws Throwable {
         HandlerList.unregisterAll();
+        if (configManager != null) {
+            configManager.shutdown();
+        }
+        closeKeyValueStores();
         clearFields();
     }
 
+    private final void closeKeyValueStores() {
+        synchronized (keyValueStores) {
+            if (keyValueStores.isEmpty()) {
+                return;
+            }
+            for (final KeyValueStore store : keyValueStores.values()) {
+                try {
+                    store.close();
+                } catch (final IOException exception) {
+                    logger.warning("Failed to close key value store '{0}'", exception, store.file());
+                }
+            }
+            keyValueStores.clear();
+        }
+        // Cached kv sources still point to the closed stores
+        resourceManager.invalidateCache();
+    }
+
     private final void clearFields() {
         argumentRegistry = null;
         messageManager = null;
@@ -291,6 +392,26 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
 
     protected void onArgumentSetup(final ArgumentRegistry registry) {}
 
+    /**
+     * Gets the maximum size of jar resources that are kept in memory after the
+     * jar was indexed. This is called before the plugin is loaded.
+     * 
+     * @return the size limit in bytes, 0 disables preloading
+     */
+    protected int resourcePreloadLimit() {
+        return JarIndex.DEFAULT_PRELOAD_LIMIT;
+    }
+
+    /**
+     * Gets the compression level that is used for {@code gz://} resources. This
+     * is called before the plugin is loaded.
+     * 
+     * @return the deflate compression level
+     */
+    protected int resourceCompressionLevel() {
+        return GzipDataSource.DEFAULT_LEVEL;
+    }
+
     /*
      * Getter
      */
@@ -299,10 +420,54 @@ public abstract class BasePlugin<T extends BasePlugin<T>> extends JavaPlugin {
         return jarRoot;
     }
 
+    public final JarIndex jarIndex() {
+        return jarIndex;
+    }
+
+    /**
+     * Gets a key value store in the data folder of the plugin, the store is
+     * opened on first use and closed when the plugin is disabled. A store that
+     * was closed because of an I/O failure is opened again, which recovers its
+     * log. Hold on to the name instead of the returned instance, {@code kv://}
+     * sources already do that.
+     * 
+     * @param  name                  the name of the store
+     * 
+     * @return                       the store
+     * 
+     * @throws IllegalStateException if the store can't be opened
+     */
+    public final KeyValueStore keyValueStore(final String name) {
+        synchronized (keyValueStores) {
+            KeyValueStore store = keyValueStores.get(name);
+            if (store != null && store.isOpen()) {
+                return store;
+            }
+            try {
+                store = KeyValueStore.open(new File(getDataFolder(), name + ".kv").toPath(), false, logger);
+            } catch (final IOException exception) {
+                throw new IllegalStateException("Unable to open key value store '" + name + "'", exception);
+            }
+            if (store.recoveredBytes() != 0) {
+                logger.warning("Dropped {0} byte(s) of incomplete records from key value store '{1}'", store.recoveredBytes(), name);
+            }
+            keyValueStores.put(name, store);
+            return store;
+        }
+    }
+
     public final ISimpleLogger logger() {
         return logger;
     }
 
+    public final StartupProfiler startupProfiler() {
+        return startupProfiler;
+    }
+
+    public final ExtensionRegistry extensionRegistry() {
+        return extensionRegistry;
+    }
+
     public final MessageManager messageManager() {
         return messageManager;
     }
@@ -8,6 +8,11 @@ public final class ConditionConstant {
 
     public static final String ENABLE_GUI = "pluginbase.enable.gui";
     public static final String DISABLE_CONFIGS = "pluginbase.disable.configs";
+    public static final String DISABLE_STARTUP_REPORT = "pluginbase.disable.startup.report";
     public static final String USE_MULTILANG_CONFIG = "pluginbase.multilang.config";
+    public static final String PARALLEL_EXTENSIONS = "pluginbase.parallel.extensions";
+    public static final String PARALLEL_CONFIGS = "pluginbase.parallel.configs";
+    public static final String WATCH_CONFIGS = "pluginbase.watch.configs";
+    public static final String CACHE_CONFIGS = "pluginbase.cache.configs";
 
 }
@@ -1,23 +1,24 @@
 package me.lauriichan.minecraft.pluginbase;
 
-import java.io.BufferedReader;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.objects.Object2BooleanOpenHashMap;
 import me.lauriichan.laylib.logger.ISimpleLogger;
 import me.lauriichan.laylib.reflection.ClassUtil;
-import me.lauriichan.minecraft.pluginbase.extension.ExtensionCondition;
+import me.lauriichan.minecraft.pluginbase.extension.ExtensionDependency;
 import me.lauriichan.minecraft.pluginbase.extension.ExtensionPoint;
+import me.lauriichan.minecraft.pluginbase.extension.ExtensionThreadSafe;
 import me.lauriichan.minecraft.pluginbase.extension.IConditionMap;
 import me.lauriichan.minecraft.pluginbase.extension.IExtension;
 import me.lauriichan.minecraft.pluginbase.extension.IExtensionPool;
-import me.lauriichan.minecraft.pluginbase.extension.processor.ExtensionProcessor;
-import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
-import me.lauriichan.minecraft.pluginbase.util.ReflectionUtil;
+import me.lauriichan.minecraft.pluginbase.extension.ILazyExtension;
 
 final class ExtensionPoolImpl<T extends IExtension> implements IExtensionPool<T> {
 
@@ -90,97 +91,342 @@ final class ExtensionPoolImpl<T extends IExtension> implements IExtensionPool<T>
 
     }
 
+    private static final int[] EMPTY_DEPENDENCIES = new int[0];
+    private static final LazyExtensionImpl<?>[] EMPTY_LAZY = new LazyExtensionImpl<?>[0];
+
+    @FunctionalInterface
+    interface IInstantiator {
+
+        Object create(Class<?> type) throws Throwable;
+
+    }
+
+    private static final class LazyExtensionImpl<T extends IExtension> implements ILazyExtension<T> {
+
+        private final ISimpleLogger logger;
+        private final String typeName;
+        private final Class<? extends T> type;
+        private final IInstantiator instantiator;
+
+        private LazyExtensionImpl<?>[] dependencies;
+
+        private volatile boolean materialized = false;
+        private T instance;
+
+        private LazyExtensionImpl(final ISimpleLogger logger, final String typeName, final Class<? extends T> type,
+            final IInstantiator instantiator) {
+            this.logger = logger;
+            this.typeName = typeName;
+            this.type = type;
+            this.instantiator = instantiator;
+        }
+
+        private LazyExtensionImpl(final Class<? extends T> type, final T instance) {
+            this(null, null, type, null);
+            this.dependencies = EMPTY_LAZY;
+            this.instance = instance;
+            this.materialized = true;
+        }
+
+        @Override
+        public Class<? extends T> type() {
+            return type;
+        }
+
+        @Override
+        public T get() {
+            if (materialized) {
+                return instance;
+            }
+            for (final LazyExtensionImpl<?> dependency : dependencies) {
+                dependency.get();
+            }
+            synchronized (this) {
+                if (!materialized) {
+                    final Object extension = create(logger, typeName, type, instantiator);
+                    instance = extension == null ? null : type.cast(extension);
+                    materialized = true;
+                }
+            }
+            return instance;
+        }
+
+        @Override
+        public boolean materialized() {
+            return materialized;
+        }
+
+    }
+
     private final Class<T> type;
     private final boolean instantiated;
+    private final boolean lazy;
     private final List<T> extensions;
     private final List<Class<? extends T>> extensionClasses;
+    private final List<ILazyExtension<T>> lazyExtensions;
 
-    ExtensionPoolImpl(final BasePlugin<?> plugin, final Class<T> type, final boolean instantiate) {
-        this(plugin, type, type, instantiate);
+    private volatile List<T> lazyInstances;
+
+    ExtensionPoolImpl(final Class<T> type, final List<Class<? extends T>> extensionClasses) {
+        this.type = Objects.requireNonNull(type, "Extension type can not be null!");
+        this.instantiated = false;
+        this.lazy = false;
+        this.extensions = Collections.emptyList();
+        this.extensionClasses = extensionClasses;
+        this.lazyExtensions = Collections.emptyList();
     }
 
-    ExtensionPoolImpl(final BasePlugin<?> plugin, final Class<? extends IExtension> extensionType, final Class<T> type,
-        final boolean instantiate) {
+    @SuppressWarnings("unchecked")
+    ExtensionPoolImpl(final BasePlugin<?> plugin, final String typeName, final Class<T> type,
+        final List<Class<? extends T>> extensionClasses, final IInstantiator instantiator) {
         Objects.requireNonNull(plugin, "Plugin can not be null!");
-        this.instantiated = instantiate;
         this.type = Objects.requireNonNull(type, "Extension type can not be null!");
-        final String typeName = resolveFromClassPath(extensionType.getName());
-        if (!isExtendable(extensionType)) {
-            throw new IllegalArgumentException("The class '" + typeName + "' is not extendable!");
+        this.instantiated = true;
+        this.lazy = true;
+        this.extensions = null;
+        this.extensionClasses = extensionClasses;
+        final ISimpleLogger logger = plugin.logger();
+        final int size = extensionClasses.size();
+        final int[][] dependencies = new int[size][];
+        dependencyOrder(logger, typeName, extensionClasses, dependencies);
+        final LazyExtensionImpl<?>[] holders = new LazyExtensionImpl<?>[size];
+        for (int index = 0; index < size; index++) {
+            holders[index] = new LazyExtensionImpl<>(logger, typeName, extensionClasses.get(index), instantiator);
         }
-        if (!extensionType.isAssignableFrom(type)) {
-            throw new IllegalArgumentException("The class '" + resolveFromClassPath(type.getName()) + "' can not be casted to '" + typeName + "'");
+        final ArrayList<ILazyExtension<T>> lazyExtensions = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            final int[] indices = dependencies[index];
+            final LazyExtensionImpl<?>[] holderDependencies = indices.length == 0 ? EMPTY_LAZY : new LazyExtensionImpl<?>[indices.length];
+            for (int idx = 0; idx < indices.length; idx++) {
+                holderDependencies[idx] = holders[indices[idx]];
+            }
+            holders[index].dependencies = holderDependencies;
+            lazyExtensions.add((ILazyExtension<T>) holders[index]);
         }
+        this.lazyExtensions = Collections.unmodifiableList(lazyExtensions);
+    }
+
+    ExtensionPoolImpl(final BasePlugin<?> plugin, final String typeName, final Class<T> type,
+        final List<Class<? extends T>> extensionClasses, final IInstantiator instantiator, final boolean parallel) {
+        Objects.requireNonNull(plugin, "Plugin can not be null!");
+        this.type = Objects.requireNonNull(type, "Extension type can not be null!");
+        this.instantiated = true;
         final ISimpleLogger logger = plugin.logger();
-        logger.info("Processing extension '{0}'", typeName);
-        final IDataSource source = plugin.resource(ExtensionProcessor.extensionPath(typeName));
-        if (!source.exists() || !source.isReadable()) {
-            this.extensions = Collections.emptyList();
-            this.extensionClasses = Collections.emptyList();
+        final int size = extensionClasses.size();
+        final int[][] dependencies = new int[size][];
+        final int[] order = dependencyOrder(logger, typeName, extensionClasses, dependencies);
+        final Object[] instances = new Object[size];
+        if (parallel && size > 1) {
+            createParallel(logger, typeName, extensionClasses, instantiator, dependencies, order, instances);
         } else {
-            List<T> extensions = null;
-            List<Class<? extends T>> extensionClasses = null;
-            try (BufferedReader reader = source.openReader()) {
-                if (instantiate) {
-                    extensions = new ArrayList<>();
-                }
-                extensionClasses = new ArrayList<>();
-                String line;
-                readLoop:
-                while ((line = reader.readLine()) != null) {
-                    if (line.isBlank()) {
-                        break;
-                    }
-                    final Class<?> clazz = ClassUtil.findClass(resolveToClassPath(line));
-                    if (clazz == null) {
-                        logger.warning("Couldn't find classs '{0}'", line);
-                        continue;
-                    }
-                    if (!type.isAssignableFrom(clazz)) {
-                        logger.warning("Class '{0}' is not assignable from '{1}'", clazz.getName(), typeName);
-                        continue;
-                    }
-                    final Class<? extends T> extensionClazz = clazz.asSubclass(type);
-                    if (plugin.conditionMap() != null) {
-                        final IConditionMap map = plugin.conditionMap();
-                        final ExtensionCondition[] conditions = ClassUtil.getAnnotations(extensionClazz, ExtensionCondition.class);
-                        for (final ExtensionCondition condition : conditions) {
-                            if (map.set(condition.name()) && map.value(condition.name()) != condition.condition()
-                                || !map.set(condition.name()) && !condition.activeByDefault()) {
-                                logger.info(
-                                    "Extension implementation '{0}' for extension '{1}' is disabled because condition '{2}' is not set to '{3}'",
-                                    extensionClazz.getName(), typeName, condition.name(), condition.condition());
-                                continue readLoop;
-                            }
-                        }
-                    }
-                    if (extensions == null) {
-                        logger.info("Found extension '{0}'", extensionClazz.getName());
-                        extensionClasses.add(extensionClazz);
-                        continue;
-                    }
-                    T extension = null;
-                    try {
-                        extension = ReflectionUtil.createInstanceThrows(extensionClazz, plugin);
-                    } catch (Throwable exp) {
-                        logger.warning("Failed to load instance '{0}' for extension '{1}'", exp, extensionClazz.getName(), typeName);
-                        continue;
+            for (final int index : order) {
+                instances[index] = create(logger, typeName, extensionClasses.get(index), instantiator);
+            }
+        }
+        final ArrayList<T> extensions = new ArrayList<>(size);
+        final ArrayList<Class<? extends T>> classes = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            if (instances[index] == null) {
+                continue;
+            }
+            final Class<? extends T> extensionClazz = extensionClasses.get(index);
+            extensions.add(extensionClazz.cast(instances[index]));
+            classes.add(extensionClazz);
+        }
+        this.extensions = Collections.unmodifiableList(extensions);
+        this.extensionClasses = classes.size() == size ? extensionClasses : Collections.unmodifiableList(classes);
+        this.lazy = false;
+        final ArrayList<ILazyExtension<T>> lazyExtensions = new ArrayList<>(extensions.size());
+        for (int index = 0; index < extensions.size(); index++) {
+            lazyExtensions.add(new LazyExtensionImpl<>(classes.get(index), extensions.get(index)));
+        }
+        this.lazyExtensions = Collections.unmodifiableList(lazyExtensions);
+    }
+
+    private static Object create(final ISimpleLogger logger, final String typeName, final Class<?> extensionClazz,
+        final IInstantiator instantiator) {
+        Object extension = null;
+        try {
+            extension = instantiator.create(extensionClazz);
+        } catch (final Throwable exp) {
+            logger.warning("Failed to load instance '{0}' for extension '{1}'", exp, extensionClazz.getName(), typeName);
+            return null;
+        }
+        if (extension == null) {
+            logger.warning("Failed to load instance '{0}' for extension '{1}'", extensionClazz.getName(), typeName);
+        }
+        return extension;
+    }
+
+    private static void createParallel(final ISimpleLogger logger, final String typeName, final List<? extends Class<?>> classes,
+        final IInstantiator instantiator, final int[][] dependencies, final int[] order, final Object[] instances) {
+        final CompletableFuture<?>[] futures = new CompletableFuture[order.length];
+        final boolean[] threadSafe = new boolean[order.length];
+        for (final int index : order) {
+            final CompletableFuture<?> after = dependencies(futures, dependencies[index]);
+            if (!(threadSafe[index] = ClassUtil.getAnnotation(classes.get(index), ExtensionThreadSafe.class) != null)) {
+                futures[index] = new CompletableFuture<>();
+                continue;
+            }
+            futures[index] = after.thenRunAsync(() -> instances[index] = create(logger, typeName, classes.get(index), instantiator),
+                ForkJoinPool.commonPool());
+        }
+        // Everything that isn't marked as thread safe stays on the calling thread
+        for (final int index : order) {
+            if (threadSafe[index]) {
+                continue;
+            }
+            dependencies(futures, dependencies[index]).join();
+            instances[index] = create(logger, typeName, classes.get(index), instantiator);
+            futures[index].complete(null);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private static CompletableFuture<?> dependencies(final CompletableFuture<?>[] futures, final int[] dependencies) {
+        if (dependencies.length == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final CompletableFuture<?>[] array = new CompletableFuture[dependencies.length];
+        for (int index = 0; index < array.length; index++) {
+            array[index] = futures[dependencies[index]];
+        }
+        return CompletableFuture.allOf(array);
+    }
+
+    private static int[] dependencyOrder(final ISimpleLogger logger, final String typeName, final List<? extends Class<?>> classes,
+        final int[][] dependencies) {
+        final int size = classes.size();
+        final IntArrayList buffer = new IntArrayList();
+        for (int index = 0; index < size; index++) {
+            final ExtensionDependency dependency = ClassUtil.getAnnotation(classes.get(index), ExtensionDependency.class);
+            if (dependency == null) {
+                dependencies[index] = EMPTY_DEPENDENCIES;
+                continue;
+            }
+            buffer.clear();
+            for (final Class<?> dependencyType : dependency.value()) {
+                for (int idx = 0; idx < size; idx++) {
+                    if (idx != index && dependencyType.isAssignableFrom(classes.get(idx)) && !buffer.contains(idx)) {
+                        buffer.add(idx);
                     }
-                    if (extension == null) {
-                        logger.warning("Failed to load instance '{0}' for extension '{1}'", extensionClazz.getName(), typeName);
-                        continue;
+                }
+            }
+            dependencies[index] = buffer.toIntArray();
+        }
+        breakCycles(logger, typeName, classes, dependencies);
+        // Stable topological sort, extensions without constraints keep their index order
+        final int[] order = new int[size];
+        final boolean[] done = new boolean[size];
+        int amount = 0;
+        while (amount < size) {
+            int next = -1;
+            searchLoop:
+            for (int index = 0; index < size; index++) {
+                if (done[index]) {
+                    continue;
+                }
+                for (final int dependency : dependencies[index]) {
+                    if (!done[dependency]) {
+                        continue searchLoop;
                     }
-                    logger.info("Found extension '{0}'", extensionClazz.getName());
-                    extensions.add(extension);
-                    extensionClasses.add(extensionClazz);
                 }
-            } catch (final IOException exp) {
-                logger.warning("Couldn't load instances for extension '{0}'", typeName);
+                next = index;
+                break;
+            }
+            if (next == -1) {
+                throw new IllegalStateException("Unresolved dependency cycle in extension '" + typeName + "'");
             }
-            this.extensions = extensions == null ? Collections.emptyList() : Collections.unmodifiableList(extensions);
-            this.extensionClasses = extensionClasses == null ? Collections.emptyList() : Collections.unmodifiableList(extensionClasses);
+            done[next] = true;
+            order[amount++] = next;
         }
-        logger.info("Found {1} extension(s) for '{0}'", typeName, this.extensionClasses.size());
+        return order;
+    }
+
+    private static void breakCycles(final ISimpleLogger logger, final String typeName, final List<? extends Class<?>> classes,
+        final int[][] dependencies) {
+        final CycleFinder finder = new CycleFinder(dependencies);
+        final int[] componentSizes = new int[dependencies.length];
+        for (int index = 0; index < dependencies.length; index++) {
+            componentSizes[finder.component(index)]++;
+        }
+        final IntArrayList buffer = new IntArrayList();
+        for (int index = 0; index < dependencies.length; index++) {
+            final int component = finder.component(index);
+            if (componentSizes[component] == 1) {
+                continue;
+            }
+            logger.warning("Extension implementation '{0}' for extension '{1}' has a cyclic dependency", classes.get(index).getName(),
+                typeName);
+            // Only the edges inside of the cycle are dropped, dependencies on anything outside of it are kept
+            buffer.clear();
+            for (final int dependency : dependencies[index]) {
+                if (finder.component(dependency) != component) {
+                    buffer.add(dependency);
+                }
+            }
+            dependencies[index] = buffer.isEmpty() ? EMPTY_DEPENDENCIES : buffer.toIntArray();
+        }
+    }
+
+    /*
+     * Tarjan's algorithm, every cycle is contained in a single strongly
+     * connected component
+     */
+    private static final class CycleFinder {
+
+        private final int[][] dependencies;
+        private final int[] indices;
+        private final int[] lowLinks;
+        private final int[] components;
+        private final boolean[] onStack;
+        private final IntArrayList stack = new IntArrayList();
+
+        private int nextIndex = 0;
+        private int nextComponent = 0;
+
+        CycleFinder(final int[][] dependencies) {
+            this.dependencies = dependencies;
+            this.indices = new int[dependencies.length];
+            this.lowLinks = new int[dependencies.length];
+            this.components = new int[dependencies.length];
+            this.onStack = new boolean[dependencies.length];
+            Arrays.fill(indices, -1);
+            for (int node = 0; node < dependencies.length; node++) {
+                if (indices[node] == -1) {
+                    visit(node);
+                }
+            }
+        }
+
+        int component(final int node) {
+            return components[node];
+        }
+
+        private void visit(final int node) {
+            indices[node] = lowLinks[node] = nextIndex++;
+            stack.push(node);
+            onStack[node] = true;
+            for (final int dependency : dependencies[node]) {
+                if (indices[dependency] == -1) {
+                    visit(dependency);
+                    lowLinks[node] = Math.min(lowLinks[node], lowLinks[dependency]);
+                } else if (onStack[dependency]) {
+                    lowLinks[node] = Math.min(lowLinks[node], indices[dependency]);
+                }
+            }
+            if (lowLinks[node] != indices[node]) {
+                return;
+            }
+            int member;
+            do {
+                member = stack.popInt();
+                onStack[member] = false;
+                components[member] = nextComponent;
+            } while (member != node);
+            nextComponent++;
+        }
+
     }
 
     @Override
@@ -190,7 +436,31 @@ final class ExtensionPoolImpl<T extends IExtension> implements IExtensionPool<T>
 
     @Override
     public List<T> extensions() {
-        return extensions;
+        if (!lazy) {
+            return extensions;
+        }
+        List<T> instances = lazyInstances;
+        if (instances != null) {
+            return instances;
+        }
+        final ArrayList<T> list = new ArrayList<>(lazyExtensions.size());
+        T instance;
+        for (final ILazyExtension<T> extension : lazyExtensions) {
+            if ((instance = extension.get()) != null) {
+                list.add(instance);
+            }
+        }
+        return lazyInstances = Collections.unmodifiableList(list);
+    }
+
+    @Override
+    public boolean lazy() {
+        return lazy;
+    }
+
+    @Override
+    public List<ILazyExtension<T>> lazyExtensions() {
+        return lazyExtensions;
     }
 
     @Override
@@ -0,0 +1,378 @@
+package me.lauriichan.minecraft.pluginbase;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import me.lauriichan.laylib.logger.ISimpleLogger;
+import me.lauriichan.laylib.reflection.ClassUtil;
+import me.lauriichan.minecraft.pluginbase.extension.ExtensionCondition;
+import me.lauriichan.minecraft.pluginbase.extension.IConditionMap;
+import me.lauriichan.minecraft.pluginbase.extension.IExtension;
+import me.lauriichan.minecraft.pluginbase.extension.IExtensionFactory;
+import me.lauriichan.minecraft.pluginbase.extension.IExtensionPool;
+import me.lauriichan.minecraft.pluginbase.extension.processor.ExtensionIndex;
+import me.lauriichan.minecraft.pluginbase.extension.processor.ExtensionProcessor;
+import me.lauriichan.minecraft.pluginbase.profiler.StartupProfiler;
+import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
+import me.lauriichan.minecraft.pluginbase.util.ReflectionUtil;
+
+public final class ExtensionRegistry {
+
+    private static final class IndexedClass {
+
+        private final int position;
+        private final String name;
+        private final ExtensionIndex.Entry entry;
+
+        private boolean resolved = false;
+        private Class<?> clazz;
+
+        private IndexedClass(final int position, final String name, final ExtensionIndex.Entry entry) {
+            this.position = position;
+            this.name = name;
+            this.entry = entry;
+        }
+
+    }
+
+    private static final class CachedIndex {
+
+        private final Class<? extends IExtension> extensionType;
+        private final String typeName;
+        private final List<IndexedClass> classes;
+        private final IExtensionFactory factory;
+
+        private final Object2ObjectOpenHashMap<Class<?>, IndexedClass> resolvedClasses = new Object2ObjectOpenHashMap<>();
+        private final Object2ObjectOpenHashMap<Class<?>, ExtensionPoolImpl<?>> classPools = new Object2ObjectOpenHashMap<>();
+
+        private IConditionMap conditionMap;
+        private List<Class<?>> enabledClasses;
+
+        private CachedIndex(final Class<? extends IExtension> extensionType, final String typeName, final List<IndexedClass> classes,
+            final IExtensionFactory factory) {
+            this.extensionType = extensionType;
+            this.typeName = typeName;
+            this.classes = classes;
+            this.factory = factory;
+        }
+
+    }
+
+    private final BasePlugin<?> plugin;
+    private final ISimpleLogger logger;
+
+    private final Object2ObjectOpenHashMap<Class<?>, CachedIndex> indices = new Object2ObjectOpenHashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+
+    ExtensionRegistry(final BasePlugin<?> plugin) {
+        this.plugin = Objects.requireNonNull(plugin, "Plugin can not be null!");
+        this.logger = plugin.logger();
+    }
+
+    /*
+     * Pools
+     */
+
+    public <E extends IExtension> IExtensionPool<E> pool(final Class<E> type, final boolean instantiate) {
+        return pool(type, type, instantiate);
+    }
+
+    public <E extends IExtension> IExtensionPool<E> pool(final Class<? extends IExtension> extensionType, final Class<E> type,
+        final boolean instantiate) {
+        try (StartupProfiler.Section section = plugin.startupProfiler().section(StartupProfiler.CATEGORY_EXTENSION_POOL, profileName(type))) {
+            final CachedIndex index;
+            final ExtensionPoolImpl<E> pool;
+            synchronized (indices) {
+                index = index(extensionType, type);
+                pool = classPool(index, type);
+            }
+            if (!instantiate) {
+                return pool;
+            }
+            final IConditionMap map = plugin.conditionMap();
+            return new ExtensionPoolImpl<>(plugin, index.typeName, type, pool.extensionClasses(), clazz -> instantiate(index, clazz),
+                map != null && map.value(ConditionConstant.PARALLEL_EXTENSIONS));
+        }
+    }
+
+    public <E extends IExtension> IExtensionPool<E> lazyPool(final Class<E> type) {
+        return lazyPool(type, type);
+    }
+
+    public <E extends IExtension> IExtensionPool<E> lazyPool(final Class<? extends IExtension> extensionType, final Class<E> type) {
+        try (StartupProfiler.Section section = plugin.startupProfiler().section(StartupProfiler.CATEGORY_EXTENSION_POOL, profileName(type))) {
+            final CachedIndex index;
+            final ExtensionPoolImpl<E> pool;
+            synchronized (indices) {
+                index = index(extensionType, type);
+                pool = classPool(index, type);
+            }
+            return new ExtensionPoolImpl<>(plugin, index.typeName, type, pool.extensionClasses(), clazz -> instantiate(index, clazz));
+        }
+    }
+
+    /*
+     * Cache
+     */
+
+    public long hits() {
+        synchronized (indices) {
+            return hits;
+        }
+    }
+
+    public long misses() {
+        synchronized (indices) {
+            return misses;
+        }
+    }
+
+    public int size() {
+        synchronized (indices) {
+            return indices.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (indices) {
+            indices.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    /*
+     * Helper
+     */
+
+    private String profileName(final Class<?> type) {
+        return ExtensionPoolImpl.resolveFromClassPath(type.getName());
+    }
+
+    private CachedIndex index(final Class<? extends IExtension> extensionType, final Class<?> type) {
+        Objects.requireNonNull(extensionType, "Extension type can not be null!");
+        Objects.requireNonNull(type, "Extension type can not be null!");
+        if (!extensionType.isAssignableFrom(type)) {
+            throw new IllegalArgumentException("The class '" + ExtensionPoolImpl.resolveFromClassPath(type.getName()) + "' can not be casted to '"
+                + ExtensionPoolImpl.resolveFromClassPath(extensionType.getName()) + "'");
+        }
+        return index(extensionType);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends IExtension> ExtensionPoolImpl<E> classPool(final CachedIndex index, final Class<E> type) {
+        final List<Class<?>> enabled = enabledClasses(index);
+        final boolean cacheable = enabled == index.enabledClasses;
+        ExtensionPoolImpl<E> pool = cacheable ? (ExtensionPoolImpl<E>) index.classPools.get(type) : null;
+        if (pool == null) {
+            pool = new ExtensionPoolImpl<>(type, filterType(index, enabled, type));
+            if (cacheable) {
+                index.classPools.put(type, pool);
+            }
+        }
+        return pool;
+    }
+
+    private CachedIndex index(final Class<? extends IExtension> extensionType) {
+        CachedIndex index = indices.get(extensionType);
+        if (index != null) {
+            hits++;
+            return index;
+        }
+        misses++;
+        final String typeName = ExtensionPoolImpl.resolveFromClassPath(extensionType.getName());
+        if (!ExtensionPoolImpl.isExtendable(extensionType)) {
+            throw new IllegalArgumentException("The class '" + typeName + "' is not extendable!");
+        }
+        logger.info("Processing extension '{0}'", typeName);
+        List<IndexedClass> classes = readBinaryIndex(typeName);
+        if (classes == null) {
+            classes = readIndex(typeName);
+        }
+        index = new CachedIndex(extensionType, typeName, classes, loadFactory(extensionType, typeName, classes));
+        indices.put(extensionType, index);
+        return index;
+    }
+
+    private List<IndexedClass> readBinaryIndex(final String typeName) {
+        final IDataSource source = plugin.resource(ExtensionProcessor.extensionIndexPath(typeName));
+        if (!source.exists() || !source.isReadable()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(source.openReadableStream()))) {
+            final List<ExtensionIndex.Entry> entries = ExtensionIndex.read(input);
+            final ObjectArrayList<IndexedClass> classes = new ObjectArrayList<>(entries.size());
+            for (int index = 0; index < entries.size(); index++) {
+                final ExtensionIndex.Entry entry = entries.get(index);
+                classes.add(new IndexedClass(index, entry.className(), entry));
+            }
+            return Collections.unmodifiableList(classes);
+        } catch (final IOException exp) {
+            logger.warning("Couldn't read extension index of '{0}', falling back to class scan", exp, typeName);
+            return null;
+        }
+    }
+
+    private List<IndexedClass> readIndex(final String typeName) {
+        final IDataSource source = plugin.resource(ExtensionProcessor.extensionPath(typeName));
+        if (!source.exists() || !source.isReadable()) {
+            return Collections.emptyList();
+        }
+        final ObjectArrayList<IndexedClass> classes = new ObjectArrayList<>();
+        try (BufferedReader reader = source.openReader()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    break;
+                }
+                classes.add(new IndexedClass(classes.size(), line, null));
+            }
+        } catch (final IOException exp) {
+            logger.warning("Couldn't load instances for extension '{0}'", typeName);
+        }
+        return Collections.unmodifiableList(classes);
+    }
+
+    private Class<?> resolve(final CachedIndex index, final IndexedClass indexed) {
+        if (indexed.resolved) {
+            return indexed.clazz;
+        }
+        indexed.resolved = true;
+        final Class<?> clazz = ClassUtil.findClass(ExtensionPoolImpl.resolveToClassPath(indexed.name));
+        if (clazz == null) {
+            logger.warning("Couldn't find classs '{0}'", indexed.name);
+            return null;
+        }
+        if (!index.extensionType.isAssignableFrom(clazz)) {
+            logger.warning("Class '{0}' is not assignable from '{1}'", clazz.getName(), index.typeName);
+            return null;
+        }
+        index.resolvedClasses.put(clazz, indexed);
+        return indexed.clazz = clazz;
+    }
+
+    private IExtensionFactory loadFactory(final Class<? extends IExtension> extensionType, final String typeName,
+        final List<IndexedClass> classes) {
+        final Class<?> clazz = ClassUtil.findClass(ExtensionProcessor.extensionFactoryName(extensionType.getName()));
+        if (clazz == null || !IExtensionFactory.class.isAssignableFrom(clazz)) {
+            return null;
+        }
+        final IExtensionFactory factory;
+        try {
+            factory = (IExtensionFactory) clazz.getConstructor().newInstance();
+        } catch (final ReflectiveOperationException exp) {
+            logger.warning("Couldn't create extension factory of '{0}', falling back to reflection", exp, typeName);
+            return null;
+        }
+        // Factories of core extension points share their name across all plugins, so the one that was found
+        // might have been generated for the index of another jar
+        boolean covered = false;
+        for (final IndexedClass indexed : classes) {
+            final String type = factory.type(indexed.position);
+            if (type == null) {
+                continue;
+            }
+            if (!ExtensionPoolImpl.resolveToClassPath(type).equals(ExtensionPoolImpl.resolveToClassPath(indexed.name))) {
+                return null;
+            }
+            covered = true;
+        }
+        return covered ? factory : null;
+    }
+
+    private Object instantiate(final CachedIndex index, final Class<?> clazz) throws Throwable {
+        try (StartupProfiler.Section section = plugin.startupProfiler().section(StartupProfiler.CATEGORY_EXTENSION, clazz.getName())) {
+            return create(index, clazz);
+        }
+    }
+
+    private Object create(final CachedIndex index, final Class<?> clazz) throws Throwable {
+        if (index.factory != null) {
+            final IndexedClass indexed;
+            synchronized (indices) {
+                indexed = index.resolvedClasses.get(clazz);
+            }
+            if (indexed != null) {
+                final IExtension extension = index.factory.create(indexed.position, plugin);
+                if (extension != null) {
+                    return extension;
+                }
+            }
+        }
+        return ReflectionUtil.createInstanceThrows(clazz, plugin);
+    }
+
+    private List<Class<?>> enabledClasses(final CachedIndex index) {
+        final IConditionMap map = plugin.conditionMap();
+        if (index.enabledClasses != null && index.conditionMap == map) {
+            return index.enabledClasses;
+        }
+        final ObjectArrayList<Class<?>> enabled = new ObjectArrayList<>(index.classes.size());
+        classLoop:
+        for (final IndexedClass indexed : index.classes) {
+            if (map != null && indexed.entry != null) {
+                // Conditions are known from the index, so disabled classes never have to be loaded
+                for (final ExtensionIndex.Condition condition : indexed.entry.conditions()) {
+                    if (isDisabled(map, index, indexed.name, condition.name(), condition.condition(), condition.activeByDefault())) {
+                        continue classLoop;
+                    }
+                }
+            }
+            final Class<?> clazz = resolve(index, indexed);
+            if (clazz == null) {
+                continue;
+            }
+            if (map != null && indexed.entry == null) {
+                final ExtensionCondition[] conditions = ClassUtil.getAnnotations(clazz, ExtensionCondition.class);
+                for (final ExtensionCondition condition : conditions) {
+                    if (isDisabled(map, index, indexed.name, condition.name(), condition.condition(), condition.activeByDefault())) {
+                        continue classLoop;
+                    }
+                }
+            }
+            enabled.add(clazz);
+        }
+        if (map != null && !map.locked()) {
+            // Conditions can still change, so don't remember the result
+            return enabled;
+        }
+        index.classPools.clear();
+        index.conditionMap = map;
+        return index.enabledClasses = Collections.unmodifiableList(enabled);
+    }
+
+    private boolean isDisabled(final IConditionMap map, final CachedIndex index, final String className, final String name,
+        final boolean condition, final boolean activeByDefault) {
+        if (map.set(name) ? map.value(name) == condition : activeByDefault) {
+            return false;
+        }
+        logger.info("Extension implementation '{0}' for extension '{1}' is disabled because condition '{2}' is not set to '{3}'",
+            className, index.typeName, name, condition);
+        return true;
+    }
+
+    private <E extends IExtension> List<Class<? extends E>> filterType(final CachedIndex index, final List<Class<?>> classes,
+        final Class<E> type) {
+        final ObjectArrayList<Class<? extends E>> filtered = new ObjectArrayList<>(classes.size());
+        for (final Class<?> clazz : classes) {
+            if (!type.isAssignableFrom(clazz)) {
+                logger.warning("Class '{0}' is not assignable from '{1}'", clazz.getName(), ExtensionPoolImpl.resolveFromClassPath(type.getName()));
+                continue;
+            }
+            logger.info("Found extension '{0}'", clazz.getName());
+            filtered.add(clazz.asSubclass(type));
+        }
+        logger.info("Found {1} extension(s) for '{0}'", index.typeName, filtered.size());
+        return Collections.unmodifiableList(filtered);
+    }
+
+}
@@ -0,0 +1,332 @@
+package me.lauriichan.minecraft.pluginbase.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import me.lauriichan.laylib.logger.ISimpleLogger;
+import me.lauriichan.minecraft.pluginbase.resource.source.BufferDataSource;
+import me.lauriichan.minecraft.pluginbase.resource.source.FileDataSource;
+import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
+
+/*
+ * Keeps a binary copy of loaded configurations so that unchanged sources don't
+ * have to be parsed again on the next start.
+ *
+ * File layout:
+ *   int magic, int version,
+ *   string source, long size, byte[32] sha-256 of the source content,
+ *   int payload length, int crc32c of the payload, payload
+ */
+final class ConfigCache {
+
+    private static final int MAGIC = 0x50424346;
+    private static final int VERSION = 1;
+
+    private static final byte SECTION = 0;
+    private static final byte BYTE = 1;
+    private static final byte SHORT = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte BOOLEAN = 7;
+    private static final byte STRING = 8;
+    private static final byte CHARACTER = 9;
+    private static final byte BIG_INTEGER = 10;
+    private static final byte BIG_DECIMAL = 11;
+    private static final byte INT_LIST = 12;
+    private static final byte LONG_LIST = 13;
+    private static final byte DOUBLE_LIST = 14;
+    private static final byte LIST = 15;
+
+    private final ISimpleLogger logger;
+    private final File directory;
+
+    ConfigCache(final ISimpleLogger logger, final File directory) {
+        this.logger = logger;
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the source into the configuration, either from the cache or by
+     * parsing it with the handler
+     *
+     * @return the sha-256 hash of the source content
+     */
+    byte[] load(final Configuration configuration, final IDataSource source, final IConfigHandler handler) throws Exception {
+        final byte[] content = source.readAllBytes();
+        final byte[] hash = ConfigWrapper.hash(content, 0, content.length);
+        final String key = String.valueOf(source.getSource());
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        final File file = new File(directory, HexFormat.of().formatHex(ConfigWrapper.hash(keyBytes, 0, keyBytes.length), 0, 16) + ".bin");
+        if (file.isFile()) {
+            try {
+                if (read(Files.readAllBytes(file.toPath()), key, content.length, hash, configuration)) {
+                    return hash;
+                }
+            } catch (final IOException | RuntimeException exception) {
+                // Broken cache file, it is replaced below
+            }
+            configuration.clear();
+        }
+        handler.load(configuration, new BufferDataSource(content));
+        try {
+            final byte[] data = write(key, content.length, hash, configuration);
+            new FileDataSource(file).write(data, 0, data.length);
+        } catch (final IOException | RuntimeException exception) {
+            logger.warning("Failed to write config cache of '{0}'", exception, key);
+        }
+        return hash;
+    }
+
+    /*
+     * Read
+     */
+
+    private static boolean read(final byte[] data, final String key, final long size, final byte[] hash,
+        final Configuration configuration) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !readString(buffer).equals(key) || buffer.getLong() != size) {
+            return false;
+        }
+        final byte[] cachedHash = new byte[hash.length];
+        buffer.get(cachedHash);
+        if (!Arrays.equals(cachedHash, hash)) {
+            return false;
+        }
+        final int length = buffer.getInt();
+        final int checksum = buffer.getInt();
+        if (length != buffer.remaining()) {
+            return false;
+        }
+        final CRC32C crc = new CRC32C();
+        crc.update(data, buffer.position(), length);
+        if ((int) crc.getValue() != checksum) {
+            return false;
+        }
+        readSection(buffer, configuration);
+        return true;
+    }
+
+    private static void readSection(final ByteBuffer buffer, final Configuration configuration) {
+        final int size = buffer.getInt();
+        for (int index = 0; index < size; index++) {
+            final String key = readString(buffer);
+            final byte type = buffer.get();
+            switch (type) {
+            case SECTION:
+                readSection(buffer, configuration.getConfiguration(key, true));
+                break;
+            case BYTE:
+                configuration.set(key, buffer.get());
+                break;
+            case SHORT:
+                configuration.set(key, buffer.getShort());
+                break;
+            case INT:
+                configuration.set(key, buffer.getInt());
+                break;
+            case LONG:
+                configuration.set(key, buffer.getLong());
+                break;
+            case FLOAT:
+                configuration.set(key, buffer.getFloat());
+                break;
+            case DOUBLE:
+                configuration.set(key, buffer.getDouble());
+                break;
+            default:
+                configuration.set(key, readValue(buffer, type));
+                break;
+            }
+        }
+    }
+
+    private static Object readValue(final ByteBuffer buffer, final byte type) {
+        switch (type) {
+        case BYTE:
+            return buffer.get();
+        case SHORT:
+            return buffer.getShort();
+        case INT:
+            return buffer.getInt();
+        case LONG:
+            return buffer.getLong();
+        case FLOAT:
+            return buffer.getFloat();
+        case DOUBLE:
+            return buffer.getDouble();
+        case BOOLEAN:
+            return buffer.get() != 0;
+        case STRING:
+            return readString(buffer);
+        case CHARACTER:
+            return buffer.getChar();
+        case BIG_INTEGER:
+            return new BigInteger(readString(buffer));
+        case BIG_DECIMAL:
+            return new BigDecimal(readString(buffer));
+        case INT_LIST: {
+            final int[] values = new int[buffer.getInt()];
+            buffer.asIntBuffer().get(values);
+            buffer.position(buffer.position() + values.length * Integer.BYTES);
+            return IntArrayList.wrap(values);
+        }
+        case LONG_LIST: {
+            final long[] values = new long[buffer.getInt()];
+            buffer.asLongBuffer().get(values);
+            buffer.position(buffer.position() + values.length * Long.BYTES);
+            return LongArrayList.wrap(values);
+        }
+        case DOUBLE_LIST: {
+            final double[] values = new double[buffer.getInt()];
+            buffer.asDoubleBuffer().get(values);
+            buffer.position(buffer.position() + values.length * Double.BYTES);
+            return DoubleArrayList.wrap(values);
+        }
+        case LIST: {
+            final int size = buffer.getInt();
+            final ObjectArrayList<Object> list = new ObjectArrayList<>(size);
+            for (int index = 0; index < size; index++) {
+                list.add(readValue(buffer, buffer.get()));
+            }
+            return list;
+        }
+        default:
+            throw new IllegalStateException("Unknown value type " + type);
+        }
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        final String string = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    /*
+     * Write
+     */
+
+    private static byte[] write(final String key, final long size, final byte[] hash, final Configuration configuration)
+        throws IOException {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream(4096);
+        writeSection(new DataOutputStream(payload), configuration);
+        final byte[] payloadBytes = payload.toByteArray();
+        final CRC32C crc = new CRC32C();
+        crc.update(payloadBytes);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(payloadBytes.length + 128);
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        writeString(output, key);
+        output.writeLong(size);
+        output.write(hash);
+        output.writeInt(payloadBytes.length);
+        output.writeInt((int) crc.getValue());
+        output.write(payloadBytes);
+        return bytes.toByteArray();
+    }
+
+    private static void writeSection(final DataOutputStream output, final Configuration configuration) throws IOException {
+        output.writeInt(configuration.size());
+        for (final String key : configuration.keySet()) {
+            writeString(output, key);
+            final Object value = configuration.value(key);
+            if (value instanceof final Configuration section) {
+                output.writeByte(SECTION);
+                writeSection(output, section);
+                continue;
+            }
+            writeValue(output, value);
+        }
+    }
+
+    private static void writeValue(final DataOutputStream output, final Object value) throws IOException {
+        if (value instanceof final Integer number) {
+            output.writeByte(INT);
+            output.writeInt(number);
+        } else if (value instanceof final Long number) {
+            output.writeByte(LONG);
+            output.writeLong(number);
+        } else if (value instanceof final Double number) {
+            output.writeByte(DOUBLE);
+            output.writeDouble(number);
+        } else if (value instanceof final Float number) {
+            output.writeByte(FLOAT);
+            output.writeFloat(number);
+        } else if (value instanceof final Short number) {
+            output.writeByte(SHORT);
+            output.writeShort(number);
+        } else if (value instanceof final Byte number) {
+            output.writeByte(BYTE);
+            output.writeByte(number);
+        } else if (value instanceof final String string) {
+            output.writeByte(STRING);
+            writeString(output, string);
+        } else if (value instanceof final Boolean bool) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean(bool);
+        } else if (value instanceof final Character character) {
+            output.writeByte(CHARACTER);
+            output.writeChar(character);
+        } else if (value instanceof final BigInteger number) {
+            output.writeByte(BIG_INTEGER);
+            writeString(output, number.toString());
+        } else if (value instanceof final BigDecimal number) {
+            output.writeByte(BIG_DECIMAL);
+            writeString(output, number.toString());
+        } else if (value instanceof final IntList list) {
+            output.writeByte(INT_LIST);
+            output.writeInt(list.size());
+            for (int index = 0; index < list.size(); index++) {
+                output.writeInt(list.getInt(index));
+            }
+        } else if (value instanceof final LongList list) {
+            output.writeByte(LONG_LIST);
+            output.writeInt(list.size());
+            for (int index = 0; index < list.size(); index++) {
+                output.writeLong(list.getLong(index));
+            }
+        } else if (value instanceof final DoubleList list) {
+            output.writeByte(DOUBLE_LIST);
+            output.writeInt(list.size());
+            for (int index = 0; index < list.size(); index++) {
+                output.writeDouble(list.getDouble(index));
+            }
+        } else if (value instanceof final List<?> list) {
+            output.writeByte(LIST);
+            output.writeInt(list.size());
+            for (final Object element : list) {
+                writeValue(output, element);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported value type " + (value == null ? "null" : value.getClass().getName()));
+        }
+    }
+
+    private static void writeString(final DataOutputStream output, final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+}
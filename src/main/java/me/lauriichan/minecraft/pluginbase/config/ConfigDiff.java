@@ -0,0 +1,179 @@
+package me.lauriichan.minecraft.pluginbase.config;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * The structural difference between two config trees. Paths always point to
+ * values, a section that was added or removed as a whole is reported as all of
+ * its values (or as the section itself if it is empty).
+ */
+public final class ConfigDiff {
+
+    public static final ConfigDiff EMPTY = new ConfigDiff(new ObjectArrayList<>(), new ObjectArrayList<>(), new ObjectArrayList<>());
+
+    /**
+     * Computes the difference between two snapshots, sections that are shared
+     * between both snapshots are skipped without being compared
+     *
+     * @param  previous the previous snapshot
+     * @param  current  the current snapshot
+     *
+     * @return          the difference
+     */
+    public static ConfigDiff of(final ConfigSnapshot previous, final ConfigSnapshot current) {
+        Objects.requireNonNull(previous, "Previous snapshot can't be null");
+        Objects.requireNonNull(current, "Current snapshot can't be null");
+        if (previous == current) {
+            return EMPTY;
+        }
+        final ConfigDiff diff = new ConfigDiff(new ObjectArrayList<>(), new ObjectArrayList<>(), new ObjectArrayList<>());
+        diff.compare(null, previous, current);
+        return diff.isEmpty() ? EMPTY : diff;
+    }
+
+    private final ObjectArrayList<String> added;
+    private final ObjectArrayList<String> removed;
+    private final ObjectArrayList<String> changed;
+
+    private ConfigDiff(final ObjectArrayList<String> added, final ObjectArrayList<String> removed, final ObjectArrayList<String> changed) {
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+    }
+
+    public List<String> added() {
+        return Collections.unmodifiableList(added);
+    }
+
+    public List<String> removed() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    public List<String> changed() {
+        return Collections.unmodifiableList(changed);
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Checks if any path at or below the specified path was added, removed or
+     * changed
+     *
+     * @param  pathUri the dotted path, an empty path matches everything
+     *
+     * @return         {@code true} if something below the path changed
+     *                     otherwise {@code false}
+     */
+    public boolean affects(final String pathUri) {
+        if (pathUri.isEmpty()) {
+            return !isEmpty();
+        }
+        return affects(added, pathUri) || affects(removed, pathUri) || affects(changed, pathUri);
+    }
+
+    /**
+     * Gets the part of this difference that is at or below the specified path
+     *
+     * @param  pathUri the dotted path, an empty path returns this difference
+     *
+     * @return         the scoped difference
+     */
+    public ConfigDiff scoped(final String pathUri) {
+        if (pathUri.isEmpty() || isEmpty()) {
+            return this;
+        }
+        final ConfigDiff diff = new ConfigDiff(filter(added, pathUri), filter(removed, pathUri), filter(changed, pathUri));
+        return diff.isEmpty() ? EMPTY : diff;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigDiff[added=" + added + ", removed=" + removed + ", changed=" + changed + "]";
+    }
+
+    /*
+     * Helper
+     */
+
+    private static boolean isAtOrBelow(final String path, final String pathUri) {
+        return path.startsWith(pathUri) && (path.length() == pathUri.length() || path.charAt(pathUri.length()) == '.');
+    }
+
+    private static boolean affects(final ObjectArrayList<String> paths, final String pathUri) {
+        for (int index = 0; index < paths.size(); index++) {
+            if (isAtOrBelow(paths.get(index), pathUri)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ObjectArrayList<String> filter(final ObjectArrayList<String> paths, final String pathUri) {
+        final ObjectArrayList<String> output = new ObjectArrayList<>();
+        for (int index = 0; index < paths.size(); index++) {
+            final String path = paths.get(index);
+            if (isAtOrBelow(path, pathUri)) {
+                output.add(path);
+            }
+        }
+        return output;
+    }
+
+    private static String join(final String parent, final String key) {
+        return parent == null ? key : parent + '.' + key;
+    }
+
+    private void compare(final String parent, final ConfigSnapshot previous, final ConfigSnapshot current) {
+        for (final String key : previous.keySet()) {
+            if (!current.has(key)) {
+                collect(removed, join(parent, key), previous.value(key));
+            }
+        }
+        for (final String key : current.keySet()) {
+            final String path = join(parent, key);
+            if (!previous.has(key)) {
+                collect(added, path, current.value(key));
+                continue;
+            }
+            if (previous.rawValue(key) == current.rawValue(key)) {
+                // Shared values and lazy sections that weren't loaded
+                continue;
+            }
+            final Object value = current.value(key);
+            final Object old = previous.value(key);
+            if (old == value) {
+                continue;
+            }
+            if (old instanceof final ConfigSnapshot oldSection && value instanceof final ConfigSnapshot section) {
+                compare(path, oldSection, section);
+                continue;
+            }
+            if (old instanceof ConfigSnapshot || value instanceof ConfigSnapshot) {
+                // A section was replaced by a value or the other way around
+                collect(removed, path, old);
+                collect(added, path, value);
+                continue;
+            }
+            if (!Objects.equals(old, value)) {
+                changed.add(path);
+            }
+        }
+    }
+
+    private static void collect(final ObjectArrayList<String> paths, final String path, final Object value) {
+        if (!(value instanceof final ConfigSnapshot section) || section.isEmpty()) {
+            paths.add(path);
+            return;
+        }
+        for (final String key : section.keySet()) {
+            collect(paths, join(path, key), section.value(key));
+        }
+    }
+
+}
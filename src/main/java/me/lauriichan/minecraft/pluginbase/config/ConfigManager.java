@@ -1,5 +1,13 @@
 package me.lauriichan.minecraft.pluginbase.config;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import it.unimi.dsi.fastutil.objects.Object2ObjectArrayMap;
 import it.unimi.dsi.fastutil.objects.ObjectCollection;
 import me.lauriichan.minecraft.pluginbase.BasePlugin;
@@ -9,19 +17,153 @@ public final class ConfigManager {
     
     private final Object2ObjectArrayMap<Class<? extends IConfigExtension>, ConfigWrapper<?>> configs = new Object2ObjectArrayMap<>();
 
+    private final ScheduledThreadPoolExecutor writer;
+
+    private final BasePlugin<?> plugin;
+    private volatile ConfigWatcher watcher;
+
     public ConfigManager(final BasePlugin<?> plugin) {
+        this.plugin = plugin;
+        final String threadName = plugin.getName() + " Config Writer";
+        this.writer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.setKeepAliveTime(30, TimeUnit.SECONDS);
+        writer.allowCoreThreadTimeOut(true);
+        // Pending saves are flushed on shutdown
+        writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
         if (plugin.conditionMap().value(ConditionConstant.DISABLE_CONFIGS)) {
             return;
         }
+        final ConfigCache cache = plugin.conditionMap().value(ConditionConstant.CACHE_CONFIGS)
+            ? new ConfigCache(plugin.logger(), new File(plugin.getDataFolder(), ".cache/configs"))
+            : null;
         plugin.extension(IConfigExtension.class, true).callInstances(extension -> {
-           configs.put(extension.getClass(), new ConfigWrapper<>(plugin, extension));
+           configs.put(extension.getClass(), new ConfigWrapper<>(plugin, extension, writer, cache));
         });
     }
     
-    public void reload() {
-        configs.values().forEach(wrapper -> wrapper.reload(false));
+    public ConfigReloadResult reload() {
+        final ConfigReloadResult result = new ConfigReloadResult();
+        for (final ConfigWrapper<?> wrapper : configs.values()) {
+            result.state(wrapper.config().getClass(), wrapper.reload(false));
+        }
+        return result;
+    }
+
+    public ConfigReloadResult reloadParallel() {
+        return reloadParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reloads all configs while reading and writing the sources concurrently.
+     * The {@link IConfigExtension#onLoad(Configuration)} and
+     * {@link IConfigExtension#onSave(Configuration)} callbacks are still called
+     * on the calling thread in registration order.
+     * 
+     * @param  executor the executor that reads and writes the sources
+     * 
+     * @return          the state of each reloaded config
+     */
+    public ConfigReloadResult reloadParallel(final Executor executor) {
+        final ConfigWrapper<?>[] wrappers = configs.values().toArray(ConfigWrapper<?>[]::new);
+        final Configuration[] configurations = new Configuration[wrappers.length];
+        final int[] states = new int[wrappers.length];
+        final CompletableFuture<?>[] futures = new CompletableFuture[wrappers.length];
+        for (int index = 0; index < wrappers.length; index++) {
+            final int current = index;
+            configurations[current] = new Configuration();
+            futures[current] = CompletableFuture.runAsync(() -> states[current] = wrappers[current].load(configurations[current]), executor);
+        }
+        CompletableFuture.allOf(futures).join();
+        for (int index = 0; index < wrappers.length; index++) {
+            final int current = index;
+            if (states[current] == ConfigWrapper.SUCCESS) {
+                states[current] = wrappers[current].apply(configurations[current], false);
+            }
+            if (states[current] != ConfigWrapper.SUCCESS) {
+                futures[current] = CompletableFuture.completedFuture(null);
+                continue;
+            }
+            futures[current] = CompletableFuture.runAsync(() -> states[current] = wrappers[current].write(configurations[current]), executor);
+        }
+        CompletableFuture.allOf(futures).join();
+        final ConfigReloadResult result = new ConfigReloadResult();
+        for (int index = 0; index < wrappers.length; index++) {
+            result.state(wrappers[index].config().getClass(), states[index]);
+        }
+        return result;
     }
     
+    /**
+     * Writes all pending background saves on the calling thread
+     */
+    public void flush() {
+        for (final ConfigWrapper<?> wrapper : configs.values()) {
+            wrapper.flush();
+        }
+    }
+
+    /**
+     * Starts watching the sources of all configs for changes. Configs that were
+     * changed on disk are read on the watcher thread once no further change
+     * happened for a short time, the loaded data is then applied on the main
+     * thread.
+     * 
+     * @param  mainThread the executor that runs tasks on the main thread
+     * 
+     * @return            {@code true} if the watcher was started otherwise
+     *                        {@code false}
+     */
+    public synchronized boolean startWatching(final Executor mainThread) {
+        if (watcher != null) {
+            return false;
+        }
+        final ConfigWatcher configWatcher;
+        try {
+            configWatcher = new ConfigWatcher(plugin.logger(), plugin.getName() + " Config Watcher", configs.values(), mainThread);
+        } catch (final IOException exception) {
+            plugin.logger().warning("Failed to start config watcher", exception);
+            return false;
+        }
+        if (configWatcher.isEmpty()) {
+            configWatcher.stop();
+            return false;
+        }
+        configWatcher.start();
+        watcher = configWatcher;
+        return true;
+    }
+
+    public synchronized void stopWatching() {
+        if (watcher == null) {
+            return;
+        }
+        watcher.stop();
+        watcher = null;
+    }
+
+    public boolean isWatching() {
+        return watcher != null;
+    }
+
+    /**
+     * Writes all pending background saves and stops the config writer thread,
+     * saves that are requested afterwards are written on the calling thread
+     */
+    public void shutdown() {
+        stopWatching();
+        flush();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public ObjectCollection<ConfigWrapper<?>> wrappers() {
         return configs.values();
     }
@@ -42,6 +184,29 @@ public final class ConfigManager {
         return type.cast(wrapper.config());
     }
 
+    public ConfigSnapshot snapshot(final Class<? extends IConfigExtension> type) {
+        final ConfigWrapper<?> wrapper = configs.get(type);
+        if (wrapper == null) {
+            return null;
+        }
+        return wrapper.snapshot();
+    }
+
+    public boolean addListener(final Class<? extends IConfigExtension> type, final String pathUri, final IConfigChangeListener listener) {
+        final ConfigWrapper<?> wrapper = configs.get(type);
+        if (wrapper == null) {
+            return false;
+        }
+        wrapper.addListener(pathUri, listener);
+        return true;
+    }
+
+    public void removeListener(final IConfigChangeListener listener) {
+        for (final ConfigWrapper<?> wrapper : configs.values()) {
+            wrapper.removeListener(listener);
+        }
+    }
+
     public boolean has(final Class<? extends IConfigExtension> type) {
         return configs.containsKey(type);
     }
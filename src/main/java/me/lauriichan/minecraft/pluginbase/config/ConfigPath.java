@@ -0,0 +1,100 @@
+package me.lauriichan.minecraft.pluginbase.config;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ConfigPath {
+
+    private static final ConcurrentHashMap<String, ConfigPath> INTERNED = new ConcurrentHashMap<>();
+
+    private static final int CACHE_SIZE = 1024;
+    private static final ConfigPath[] CACHE = new ConfigPath[CACHE_SIZE];
+
+    /**
+     * Gets the interned path for the specified path string, this should be used
+     * for constant paths as interned paths are never released
+     *
+     * @param  path the dotted path string
+     *
+     * @return      the interned path
+     */
+    public static ConfigPath of(final String path) {
+        final ConfigPath configPath = INTERNED.get(Objects.requireNonNull(path, "Path can't be null"));
+        if (configPath != null) {
+            return configPath;
+        }
+        return INTERNED.computeIfAbsent(path, ConfigPath::new);
+    }
+
+    /**
+     * Gets a path for the specified path string from a small bounded cache,
+     * paths that are evicted from the cache are simply parsed again
+     *
+     * @param  path the dotted path string
+     *
+     * @return      the path
+     */
+    public static ConfigPath cached(final String path) {
+        final int slot = spread(path.hashCode()) & (CACHE_SIZE - 1);
+        ConfigPath configPath = CACHE[slot];
+        if (configPath != null && configPath.path.equals(path)) {
+            return configPath;
+        }
+        configPath = INTERNED.get(path);
+        if (configPath == null) {
+            configPath = new ConfigPath(path);
+        }
+        // Racy but safe, paths are immutable and a lost update only costs a parse
+        CACHE[slot] = configPath;
+        return configPath;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ hash >>> 16;
+    }
+
+    private final String path;
+    private final int hash;
+    final String[] parts;
+
+    private ConfigPath(final String path) {
+        this.path = path;
+        this.hash = path.hashCode();
+        this.parts = path.split("\\.");
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public int length() {
+        return parts.length;
+    }
+
+    public String part(final int index) {
+        return parts[index];
+    }
+
+    public String last() {
+        return parts[parts.length - 1];
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        return obj instanceof final ConfigPath other && other.hash == hash && other.path.equals(path);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+}
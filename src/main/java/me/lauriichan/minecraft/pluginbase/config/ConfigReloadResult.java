@@ -0,0 +1,62 @@
+package me.lauriichan.minecraft.pluginbase.config;
+
+import it.unimi.dsi.fastutil.objects.Object2IntArrayMap;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
+
+public final class ConfigReloadResult {
+
+    private final Object2IntArrayMap<Class<? extends IConfigExtension>> states = new Object2IntArrayMap<>();
+
+    ConfigReloadResult() {
+        states.defaultReturnValue(-1);
+    }
+
+    void state(final Class<? extends IConfigExtension> type, final int state) {
+        states.put(type, state);
+    }
+
+    /**
+     * Gets the state code of a config
+     * 
+     * @param  type the config type
+     * 
+     * @return      the state code (see {@link ConfigWrapper}) or {@code -1} if
+     *                  the config wasn't reloaded
+     */
+    public int state(final Class<? extends IConfigExtension> type) {
+        return states.getInt(type);
+    }
+
+    public ObjectSet<Class<? extends IConfigExtension>> types() {
+        return states.keySet();
+    }
+
+    public int count(final int state) {
+        int amount = 0;
+        for (final int value : states.values()) {
+            if (value == state) {
+                amount++;
+            }
+        }
+        return amount;
+    }
+
+    public int failed() {
+        int amount = 0;
+        for (final int value : states.values()) {
+            if (ConfigWrapper.isFailedState(value)) {
+                amount++;
+            }
+        }
+        return amount;
+    }
+
+    public boolean hasFailed() {
+        return failed() != 0;
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+}
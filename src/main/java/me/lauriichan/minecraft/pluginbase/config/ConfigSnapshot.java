@@ -0,0 +1,294 @@
+package me.lauriichan.minecraft.pluginbase.config;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.doubles.DoubleLists;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntLists;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongLists;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * An immutable view of a {@link Configuration} at a point in time. Snapshots
+ * are never modified after they were created and can therefore be read from
+ * any thread without synchronization.
+ * <p>
+ * Lists and maps are copied into unmodifiable collections, other values are
+ * expected to be immutable and are shared as they are.
+ */
+public final class ConfigSnapshot {
+
+    public static final ConfigSnapshot EMPTY = new ConfigSnapshot(new Object2ObjectLinkedOpenHashMap<>());
+
+    /**
+     * Creates a snapshot of a configuration, sections and values that are equal
+     * to the ones in the previous snapshot are shared with it
+     *
+     * @param  configuration the configuration to create the snapshot of
+     * @param  previous      the previous snapshot or {@code null}
+     *
+     * @return               the snapshot, this is the previous snapshot itself if
+     *                           nothing changed
+     */
+    public static ConfigSnapshot of(final Configuration configuration, final ConfigSnapshot previous) {
+        Objects.requireNonNull(configuration, "Configuration can't be null");
+        final Object2ObjectLinkedOpenHashMap<String, Object> map = new Object2ObjectLinkedOpenHashMap<>(configuration.size());
+        final Iterator<String> previousKeys = previous == null ? null : previous.map.keySet().iterator();
+        boolean shared = previous != null && previous.map.size() == configuration.size();
+        for (final String key : configuration.keySet()) {
+            final Object old = previous == null ? null : previous.map.get(key);
+            final Object value = freeze(configuration.rawValue(key), old);
+            if (shared) {
+                // Key order is part of the content as it's the order in which the keys are saved
+                shared = value == old && previousKeys.next().equals(key);
+            }
+            map.put(key, value);
+        }
+        return shared ? previous : new ConfigSnapshot(map);
+    }
+
+    private static Object freeze(final Object value, final Object old) {
+        if (value instanceof final Configuration configuration) {
+            return of(configuration, old instanceof final ConfigSnapshot snapshot ? snapshot : null);
+        }
+        if (value instanceof LazyConfiguration) {
+            // Unmodified lazy sections are kept as they are and only loaded when read
+            return value;
+        }
+        if (old != null && old.equals(value)) {
+            return old;
+        }
+        if (value instanceof final IntList list) {
+            return IntLists.unmodifiable(new IntArrayList(list));
+        }
+        if (value instanceof final LongList list) {
+            return LongLists.unmodifiable(new LongArrayList(list));
+        }
+        if (value instanceof final DoubleList list) {
+            return DoubleLists.unmodifiable(new DoubleArrayList(list));
+        }
+        if (value instanceof final List<?> list) {
+            final ObjectArrayList<Object> output = new ObjectArrayList<>(list.size());
+            for (final Object element : list) {
+                output.add(freeze(element, null));
+            }
+            return Collections.unmodifiableList(output);
+        }
+        if (value instanceof final Map<?, ?> map) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        }
+        return value;
+    }
+
+    private final Object2ObjectLinkedOpenHashMap<String, Object> map;
+    private final Set<String> keys;
+
+    private ConfigSnapshot(final Object2ObjectLinkedOpenHashMap<String, Object> map) {
+        this.map = map;
+        this.keys = Collections.unmodifiableSet(map.keySet());
+    }
+
+    /*
+     * Keys
+     */
+
+    public Set<String> keySet() {
+        return keys;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /*
+     * Contains
+     */
+
+    public boolean contains(final String pathUri) {
+        if (pathUri.indexOf('.') == -1) {
+            return map.containsKey(pathUri);
+        }
+        return contains(ConfigPath.cached(pathUri));
+    }
+
+    public boolean contains(final ConfigPath path) {
+        final ConfigSnapshot snapshot = find(path.parts, path.parts.length - 1);
+        return snapshot != null && snapshot.map.containsKey(path.last());
+    }
+
+    /*
+     * Getter
+     */
+
+    public Object get(final String pathUri) {
+        if (pathUri.indexOf('.') == -1) {
+            return value(pathUri);
+        }
+        return get(ConfigPath.cached(pathUri));
+    }
+
+    public Object get(final ConfigPath path) {
+        final ConfigSnapshot snapshot = find(path.parts, path.parts.length - 1);
+        return snapshot == null ? null : snapshot.value(path.last());
+    }
+
+    public <E> E get(final String pathUri, final Class<E> type) {
+        return Configuration.cast(get(pathUri), type, null);
+    }
+
+    public <E> E get(final ConfigPath path, final Class<E> type) {
+        return Configuration.cast(get(path), type, null);
+    }
+
+    public <E> E get(final String pathUri, final Class<E> type, final E fallback) {
+        return Configuration.cast(get(pathUri), type, fallback);
+    }
+
+    public <E> E get(final ConfigPath path, final Class<E> type, final E fallback) {
+        return Configuration.cast(get(path), type, fallback);
+    }
+
+    /*
+     * Primitive getter
+     */
+
+    public boolean getBoolean(final String pathUri, final boolean fallback) {
+        return Configuration.asBoolean(get(pathUri), fallback);
+    }
+
+    public boolean getBoolean(final ConfigPath path, final boolean fallback) {
+        return Configuration.asBoolean(get(path), fallback);
+    }
+
+    public int getInt(final String pathUri, final int fallback) {
+        return get(pathUri) instanceof final Number number ? number.intValue() : fallback;
+    }
+
+    public int getInt(final ConfigPath path, final int fallback) {
+        return get(path) instanceof final Number number ? number.intValue() : fallback;
+    }
+
+    public long getLong(final String pathUri, final long fallback) {
+        return get(pathUri) instanceof final Number number ? number.longValue() : fallback;
+    }
+
+    public long getLong(final ConfigPath path, final long fallback) {
+        return get(path) instanceof final Number number ? number.longValue() : fallback;
+    }
+
+    public float getFloat(final String pathUri, final float fallback) {
+        return get(pathUri) instanceof final Number number ? number.floatValue() : fallback;
+    }
+
+    public float getFloat(final ConfigPath path, final float fallback) {
+        return get(path) instanceof final Number number ? number.floatValue() : fallback;
+    }
+
+    public double getDouble(final String pathUri, final double fallback) {
+        return get(pathUri) instanceof final Number number ? number.doubleValue() : fallback;
+    }
+
+    public double getDouble(final ConfigPath path, final double fallback) {
+        return get(path) instanceof final Number number ? number.doubleValue() : fallback;
+    }
+
+    /*
+     * Special getter
+     */
+
+    public Number getNumber(final String pathUri, final Number fallback) {
+        return get(pathUri) instanceof final Number number ? number : fallback;
+    }
+
+    public Number getNumber(final ConfigPath path, final Number fallback) {
+        return get(path) instanceof final Number number ? number : fallback;
+    }
+
+    public ConfigSnapshot getSnapshot(final String pathUri) {
+        return get(pathUri) instanceof final ConfigSnapshot snapshot ? snapshot : null;
+    }
+
+    public ConfigSnapshot getSnapshot(final ConfigPath path) {
+        return find(path.parts, path.parts.length);
+    }
+
+    public <E> List<E> getList(final String pathUri, final Class<E> type) {
+        return Configuration.asList(get(pathUri));
+    }
+
+    public <E> List<E> getList(final ConfigPath path, final Class<E> type) {
+        return Configuration.asList(get(path));
+    }
+
+    public IntList getIntList(final String pathUri) {
+        return Configuration.asIntList(get(pathUri));
+    }
+
+    public IntList getIntList(final ConfigPath path) {
+        return Configuration.asIntList(get(path));
+    }
+
+    public LongList getLongList(final String pathUri) {
+        return Configuration.asLongList(get(pathUri));
+    }
+
+    public LongList getLongList(final ConfigPath path) {
+        return Configuration.asLongList(get(path));
+    }
+
+    public DoubleList getDoubleList(final String pathUri) {
+        return Configuration.asDoubleList(get(pathUri));
+    }
+
+    public DoubleList getDoubleList(final ConfigPath path) {
+        return Configuration.asDoubleList(get(path));
+    }
+
+    /*
+     * Helper
+     */
+
+    boolean has(final String key) {
+        return map.containsKey(key);
+    }
+
+    Object value(final String key) {
+        final Object object = map.get(key);
+        if (object instanceof final LazyConfiguration lazy) {
+            return lazy.snapshot();
+        }
+        return object;
+    }
+
+    Object rawValue(final String key) {
+        return map.get(key);
+    }
+
+    private ConfigSnapshot find(final String[] path, final int length) {
+        ConfigSnapshot current = this;
+        for (int index = 0; index < length; index++) {
+            if (!(current.value(path[index]) instanceof final ConfigSnapshot child)) {
+                return null;
+            }
+            current = child;
+        }
+        return current;
+    }
+
+}
@@ -0,0 +1,181 @@
+package me.lauriichan.minecraft.pluginbase.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import me.lauriichan.laylib.logger.ISimpleLogger;
+import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
+
+final class ConfigWatcher implements Runnable {
+
+    static final long DEBOUNCE_MILLIS = 500L;
+
+    private final ISimpleLogger logger;
+    private final Executor mainThread;
+
+    private final WatchService service;
+    private final Object2ObjectOpenHashMap<WatchKey, Path> directories = new Object2ObjectOpenHashMap<>();
+
+    // Wrappers whose source is a single file, keyed by the file
+    private final Object2ObjectOpenHashMap<Path, ObjectArrayList<ConfigWrapper<?>>> files = new Object2ObjectOpenHashMap<>();
+    // Wrappers whose source is a directory, keyed by the directory
+    private final Object2ObjectOpenHashMap<Path, ObjectArrayList<ConfigWrapper<?>>> folders = new Object2ObjectOpenHashMap<>();
+    private final ObjectOpenHashSet<ConfigWrapper<?>> folderWrappers = new ObjectOpenHashSet<>();
+
+    private final Thread thread;
+
+    ConfigWatcher(final ISimpleLogger logger, final String name, final Iterable<ConfigWrapper<?>> wrappers, final Executor mainThread)
+        throws IOException {
+        this.logger = logger;
+        this.mainThread = mainThread;
+        this.service = FileSystems.getDefault().newWatchService();
+        final Object2ObjectOpenHashMap<Path, WatchKey> keys = new Object2ObjectOpenHashMap<>();
+        try {
+            for (final ConfigWrapper<?> wrapper : wrappers) {
+                final Path path = pathOf(wrapper.source());
+                if (path == null) {
+                    continue;
+                }
+                final Path directory;
+                if (Files.isDirectory(path)) {
+                    directory = path;
+                    folders.computeIfAbsent(path, ignore -> new ObjectArrayList<>()).add(wrapper);
+                    folderWrappers.add(wrapper);
+                } else {
+                    directory = path.getParent();
+                    files.computeIfAbsent(path, ignore -> new ObjectArrayList<>()).add(wrapper);
+                }
+                if (directory == null || keys.containsKey(directory) || !Files.isDirectory(directory)) {
+                    continue;
+                }
+                final WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+                keys.put(directory, key);
+                directories.put(key, directory);
+            }
+        } catch (final IOException exception) {
+            service.close();
+            throw exception;
+        }
+        this.thread = new Thread(this, name);
+        thread.setDaemon(true);
+    }
+
+    private static Path pathOf(final IDataSource source) {
+        final Object object = source.getSource();
+        if (object instanceof final File file) {
+            return file.toPath().toAbsolutePath().normalize();
+        }
+        if (object instanceof final Path path && path.getFileSystem() == FileSystems.getDefault()) {
+            return path.toAbsolutePath().normalize();
+        }
+        return null;
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void stop() {
+        try {
+            service.close();
+        } catch (final IOException exception) {
+            logger.warning("Failed to close config watch service", exception);
+        }
+        thread.interrupt();
+    }
+
+    boolean isEmpty() {
+        return directories.isEmpty();
+    }
+
+    @Override
+    public void run() {
+        final ObjectLinkedOpenHashSet<ConfigWrapper<?>> pending = new ObjectLinkedOpenHashSet<>();
+        try {
+            while (true) {
+                // Wait until no further event arrived for the debounce time
+                final WatchKey key = pending.isEmpty() ? service.take() : service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    reload(pending);
+                    pending.clear();
+                    continue;
+                }
+                final Path directory = directories.get(key);
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        addAll(pending, files.values());
+                        addAll(pending, folders.values());
+                        continue;
+                    }
+                    collect(pending, directory, (Path) event.context());
+                }
+                key.reset();
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException exception) {
+            // Watcher was stopped
+        }
+    }
+
+    private void collect(final ObjectLinkedOpenHashSet<ConfigWrapper<?>> pending, final Path directory, final Path name) {
+        if (directory == null || name.getFileName().toString().startsWith(".")) {
+            // Ignore hidden files, this includes the temporary files of atomic writes
+            return;
+        }
+        final ObjectArrayList<ConfigWrapper<?>> fileWrappers = files.get(directory.resolve(name));
+        if (fileWrappers != null) {
+            pending.addAll(fileWrappers);
+        }
+        final ObjectArrayList<ConfigWrapper<?>> directoryWrappers = folders.get(directory);
+        if (directoryWrappers != null) {
+            pending.addAll(directoryWrappers);
+        }
+    }
+
+    private static void addAll(final ObjectLinkedOpenHashSet<ConfigWrapper<?>> pending,
+        final Iterable<ObjectArrayList<ConfigWrapper<?>>> lists) {
+        for (final ObjectArrayList<ConfigWrapper<?>> list : lists) {
+            pending.addAll(list);
+        }
+    }
+
+    private void reload(final ObjectLinkedOpenHashSet<ConfigWrapper<?>> pending) {
+        for (final ConfigWrapper<?> wrapper : pending) {
+            try {
+                if (folderWrappers.contains(wrapper)) {
+                    // The modification time of a directory doesn't change if a file inside of it is edited
+                    wrapper.invalidate();
+                }
+                final Configuration configuration = new Configuration();
+                if (wrapper.load(configuration) != ConfigWrapper.SUCCESS) {
+                    continue;
+                }
+                mainThread.execute(() -> {
+                    if (wrapper.apply(configuration, false) != ConfigWrapper.SUCCESS) {
+                        return;
+                    }
+                    logger.info("Reloaded configuration '{0}' after it was changed on disk", wrapper.config().path());
+                    wrapper.queueWrite(configuration);
+                });
+            } catch (final RuntimeException exception) {
+                // Keep the watcher alive, e.g. the scheduler rejects tasks while the plugin is disabled
+                logger.warning("Failed to reload configuration '{0}' after it was changed on disk", exception, wrapper.config().path());
+            }
+        }
+    }
+
+}
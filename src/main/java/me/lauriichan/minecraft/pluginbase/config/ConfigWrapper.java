@@ -1,22 +1,36 @@
 package me.lauriichan.minecraft.pluginbase.config;
 
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import me.lauriichan.laylib.logger.ISimpleLogger;
 import me.lauriichan.minecraft.pluginbase.BasePlugin;
+import me.lauriichan.minecraft.pluginbase.resource.source.BufferDataSource;
 import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
 
 public final class ConfigWrapper<T extends IConfigExtension> {
 
+    private static record Listener(String path, IConfigChangeListener listener) {}
+
     public static final int SUCCESS = 0x0;
     public static final int FAIL_IO_LOAD = 0x1;
     public static final int FAIL_DATA_LOAD = 0x2;
     public static final int FAIL_DATA_SAVE = 0x3;
     public static final int FAIL_IO_SAVE = 0x4;
     public static final int SKIPPED = 0x5;
+    public static final int UNCHANGED = 0x6;
+
+    static final long SAVE_DELAY_MILLIS = 1000L;
 
     public static boolean isFailedState(final int state) {
-        return state != SUCCESS && state != SKIPPED;
+        return state != SUCCESS && state != SKIPPED && state != UNCHANGED;
     }
 
     public static boolean isIOError(final int state) {
@@ -34,8 +48,32 @@ public final class ConfigWrapper<T extends IConfigExtension> {
     private final IConfigHandler handler;
 
     private volatile long lastTimeModified = -1L;
+    private volatile byte[] lastContentHash;
+
+    private final Object snapshotLock = new Object();
+    private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService writer;
+    private final ConfigCache cache;
+    private final Object writeLock = new Object();
+
+    private final Object pendingLock = new Object();
+    private Configuration pendingConfiguration;
+    private CompletableFuture<Integer> pendingFuture;
+
+    private volatile boolean incremental = false;
+    // Last written configuration, only kept in incremental mode and guarded by the write lock
+    private Configuration retained;
 
     public ConfigWrapper(final BasePlugin<?> plugin, final T extension) {
+        this(plugin, extension, null, null);
+    }
+
+    ConfigWrapper(final BasePlugin<?> plugin, final T extension, final ScheduledExecutorService writer, final ConfigCache cache) {
+        this.writer = writer;
+        this.cache = cache;
         this.logger = plugin.logger();
         this.config = Objects.requireNonNull(extension, "Config extension can't be null");
         this.source = Objects.requireNonNull(plugin.resource(extension.path()), "Couldn't find data source at '" + extension.path() + "'");
@@ -58,20 +96,96 @@ public final class ConfigWrapper<T extends IConfigExtension> {
         return lastTimeModified;
     }
 
+    /**
+     * Gets the snapshot of the config data that was loaded or saved last. This
+     * can be called from any thread, the returned snapshot never changes.
+     * 
+     * @return the current snapshot
+     */
+    public ConfigSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Registers a listener that is called whenever a value at or below the
+     * specified path changes. The listener is called on the thread that loaded
+     * or saved the config, calls for the same config never overlap and arrive
+     * in the order in which the changes were published.
+     * 
+     * @param pathUri  the dotted path, an empty path listens to all changes
+     * @param listener the listener
+     */
+    public void addListener(final String pathUri, final IConfigChangeListener listener) {
+        listeners.add(new Listener(Objects.requireNonNull(pathUri, "Path can't be null"),
+            Objects.requireNonNull(listener, "Listener can't be null")));
+    }
+
+    public void removeListener(final IConfigChangeListener listener) {
+        listeners.removeIf(entry -> entry.listener() == listener);
+    }
+
+    /**
+     * Enables or disables incremental saves. In incremental mode the last
+     * written configuration is kept in memory and {@link #save(boolean)} only
+     * patches the values that were modified since into it instead of
+     * collecting the whole config again.
+     * 
+     * @param incremental {@code true} if saves should be incremental
+     */
+    public void incremental(final boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) {
+            synchronized (writeLock) {
+                retained = null;
+            }
+        }
+    }
+
+    public boolean incremental() {
+        return incremental;
+    }
+
     public int reload(final boolean wipeAfterLoad) {
         final Configuration configuration = new Configuration();
+        int state = load(configuration);
+        if (state != SUCCESS) {
+            return state;
+        }
+        state = apply(configuration, wipeAfterLoad);
+        if (state != SUCCESS) {
+            return state;
+        }
+        return write(configuration);
+    }
+
+    /*
+     * Reload phases
+     */
+
+    final int load(final Configuration configuration) {
         if (source.exists()) {
             if (lastTimeModified == source.lastModified()) {
                 return SKIPPED;
             }
             try {
-                handler.load(configuration, source);
+                if (cache != null && handler.isCacheable()) {
+                    // The cache hashes the content anyway, which saves the first unchanged check a read
+                    lastContentHash = cache.load(configuration, source, handler);
+                } else {
+                    // The hash belongs to our last write and not to the content that was just read
+                    lastContentHash = null;
+                    handler.load(configuration, source);
+                }
                 lastTimeModified = source.lastModified();
             } catch (final Exception exception) {
                 logger.warning("Failed to load configuration from '{0}'!", exception, config.path());
                 return FAIL_IO_LOAD;
             }
         }
+        return SUCCESS;
+    }
+
+    final int apply(final Configuration configuration, final boolean wipeAfterLoad) {
         try {
             config.onLoad(configuration);
         } catch (final Exception exception) {
@@ -87,20 +201,134 @@ public final class ConfigWrapper<T extends IConfigExtension> {
             logger.warning("Failed to save configuration data of '{0}'!", exception, config.path());
             return FAIL_DATA_SAVE;
         }
+        publish(configuration);
+        return SUCCESS;
+    }
+
+    private void publish(final Configuration configuration) {
+        // Readers never take this lock, it keeps concurrent saves from losing updates and makes sure that
+        // listeners see the changes in the same order in which the snapshots were published
+        synchronized (snapshotLock) {
+            final ConfigSnapshot previous = snapshot;
+            final ConfigSnapshot current = snapshot = ConfigSnapshot.of(configuration, previous);
+            if (previous == current || listeners.isEmpty()) {
+                return;
+            }
+            final ConfigDiff diff = ConfigDiff.of(previous, current);
+            if (diff.isEmpty()) {
+                return;
+            }
+            for (final Listener entry : listeners) {
+                final ConfigDiff scoped = diff.scoped(entry.path());
+                if (scoped.isEmpty()) {
+                    continue;
+                }
+                try {
+                    entry.listener().onChange(scoped, current);
+                } catch (final Exception exception) {
+                    logger.warning("Failed to notify change listener of configuration '{0}'!", exception, config.path());
+                }
+            }
+        }
+    }
+
+    final int write(final Configuration configuration) {
+        synchronized (writeLock) {
+            // The configuration is newer than any pending save, so it replaces it
+            final CompletableFuture<Integer> superseded;
+            synchronized (pendingLock) {
+                superseded = pendingFuture;
+                pendingConfiguration = null;
+                pendingFuture = null;
+            }
+            final int state = writeContent(configuration);
+            if (superseded != null) {
+                superseded.complete(state);
+            }
+            return state;
+        }
+    }
+
+    private int writeContent(final Configuration configuration) {
+        final int state = writeSource(configuration);
+        if (incremental) {
+            retained = isFailedState(state) ? null : configuration;
+        }
+        return state;
+    }
+
+    private int writeSource(final Configuration configuration) {
+        if (!handler.isSingleSource()) {
+            try {
+                handler.save(configuration, source);
+                lastTimeModified = source.lastModified();
+            } catch (final Exception exception) {
+                logger.warning("Failed to save configuration to '{0}'!", exception, config.path());
+                return FAIL_IO_SAVE;
+            }
+            return SUCCESS;
+        }
+        final BufferDataSource buffer = new BufferDataSource();
         try {
-            handler.save(configuration, source);
+            handler.save(configuration, buffer);
+        } catch (final Exception exception) {
+            logger.warning("Failed to save configuration to '{0}'!", exception, config.path());
+            return FAIL_IO_SAVE;
+        }
+        final byte[] hash = hash(buffer.array(), 0, buffer.size());
+        if (isUnchanged(buffer, hash)) {
+            lastContentHash = hash;
             lastTimeModified = source.lastModified();
+            return UNCHANGED;
+        }
+        try {
+            source.write(buffer.array(), 0, buffer.size());
         } catch (final Exception exception) {
+            lastContentHash = null;
             logger.warning("Failed to save configuration to '{0}'!", exception, config.path());
             return FAIL_IO_SAVE;
         }
+        lastContentHash = hash;
+        lastTimeModified = source.lastModified();
         return SUCCESS;
     }
 
+    private boolean isUnchanged(final BufferDataSource buffer, final byte[] hash) {
+        if (!source.exists()) {
+            return false;
+        }
+        final byte[] lastHash = lastContentHash;
+        if (lastHash != null && lastTimeModified == source.lastModified()) {
+            // Nobody touched the source since we wrote or compared it last time
+            return MessageDigest.isEqual(lastHash, hash);
+        }
+        if (!source.isReadable()) {
+            return false;
+        }
+        try (InputStream stream = source.openReadableStream()) {
+            return buffer.contentEquals(stream);
+        } catch (final Exception exception) {
+            return false;
+        }
+    }
+
+    static byte[] hash(final byte[] data, final int offset, final int length) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, offset, length);
+            return digest.digest();
+        } catch (final NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not supported", exception);
+        }
+    }
+
     public int save(final boolean force) {
         if (!force && !config.isModified() && source.exists()) {
             return SKIPPED;
         }
+        if (!force && incremental) {
+            return saveModified();
+        }
         final Configuration configuration = new Configuration();
         try {
             config.onSave(configuration);
@@ -108,14 +336,126 @@ public final class ConfigWrapper<T extends IConfigExtension> {
             logger.warning("Failed to save configuration data of '{0}'!", exception, config.path());
             return FAIL_DATA_SAVE;
         }
+        publish(configuration);
+        return write(configuration);
+    }
+
+    private int saveModified() {
+        synchronized (writeLock) {
+            Configuration configuration = retained;
+            try {
+                if (configuration == null) {
+                    // Nothing was written yet, so start from what is on disk
+                    configuration = new Configuration();
+                    if (source.exists()) {
+                        try {
+                            handler.load(configuration, source);
+                        } catch (final Exception exception) {
+                            logger.warning("Failed to load configuration from '{0}'!", exception, config.path());
+                            return FAIL_IO_LOAD;
+                        }
+                    }
+                    config.onSave(configuration);
+                } else if (!config.onSaveModified(configuration)) {
+                    config.onSave(configuration);
+                }
+            } catch (final Exception exception) {
+                // The retained configuration might be partially patched now
+                retained = null;
+                logger.warning("Failed to save configuration data of '{0}'!", exception, config.path());
+                return FAIL_DATA_SAVE;
+            }
+            publish(configuration);
+            // Unmodified values serialize to the same bytes, so this is skipped as unchanged if nothing differs
+            return write(configuration);
+        }
+    }
+
+    /**
+     * Saves the config in the background. The config data is collected on the
+     * calling thread, the source is written on the config writer thread after a
+     * short delay. Saves that are requested before the pending one was written
+     * are coalesced into a single write of the newest data.
+     * 
+     * @param  force {@code true} if the config should be saved even if it wasn't
+     *                   modified
+     * 
+     * @return       a future that completes with the state code of the write
+     */
+    public CompletableFuture<Integer> saveAsync(final boolean force) {
+        if (!force && !config.isModified() && source.exists()) {
+            return CompletableFuture.completedFuture(SKIPPED);
+        }
+        final Configuration configuration = new Configuration();
         try {
-            handler.save(configuration, source);
-            lastTimeModified = source.lastModified();
+            config.onSave(configuration);
         } catch (final Exception exception) {
-            logger.warning("Failed to save configuration to '{0}'!", exception, config.path());
-            return FAIL_IO_SAVE;
+            logger.warning("Failed to save configuration data of '{0}'!", exception, config.path());
+            return CompletableFuture.completedFuture(FAIL_DATA_SAVE);
+        }
+        publish(configuration);
+        return queueWrite(configuration);
+    }
+
+    final CompletableFuture<Integer> queueWrite(final Configuration configuration) {
+        final CompletableFuture<Integer> future;
+        synchronized (pendingLock) {
+            pendingConfiguration = configuration;
+            if (pendingFuture != null) {
+                return pendingFuture;
+            }
+            future = pendingFuture = new CompletableFuture<>();
+        }
+        scheduleWrite();
+        return future;
+    }
+
+    /**
+     * Forgets the last known modification time so that the next reload reads
+     * the source even if its modification time didn't change
+     */
+    public void invalidate() {
+        lastTimeModified = -1L;
+    }
+
+    /**
+     * Writes the pending background save on the calling thread
+     */
+    public void flush() {
+        writePending();
+    }
+
+    private void scheduleWrite() {
+        if (writer == null) {
+            CompletableFuture.delayedExecutor(SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS).execute(this::writePending);
+            return;
+        }
+        try {
+            writer.schedule(this::writePending, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException exception) {
+            writePending();
+        }
+    }
+
+    private void writePending() {
+        synchronized (writeLock) {
+            final Configuration configuration;
+            final CompletableFuture<Integer> future;
+            synchronized (pendingLock) {
+                configuration = pendingConfiguration;
+                future = pendingFuture;
+                pendingConfiguration = null;
+                pendingFuture = null;
+            }
+            if (future == null) {
+                return;
+            }
+            try {
+                future.complete(writeContent(configuration));
+            } catch (final Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
         }
-        return SUCCESS;
     }
 
 }
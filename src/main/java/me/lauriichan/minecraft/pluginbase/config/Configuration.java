@@ -1,22 +1,168 @@
 package me.lauriichan.minecraft.pluginbase.config;
 
+import java.util.AbstractSet;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.doubles.DoubleLists;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntLists;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongLists;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
 
 public final class Configuration {
 
+    private enum Slot {
+
+        BYTE(true),
+        SHORT(true),
+        INT(true),
+        LONG(true),
+        FLOAT(false),
+        DOUBLE(false);
+
+        private final boolean integral;
+
+        private Slot(final boolean integral) {
+            this.integral = integral;
+        }
+
+        private Number box(final long bits) {
+            return switch (this) {
+            case BYTE -> (byte) bits;
+            case SHORT -> (short) bits;
+            case INT -> (int) bits;
+            case LONG -> bits;
+            case FLOAT -> (float) Double.longBitsToDouble(bits);
+            case DOUBLE -> Double.longBitsToDouble(bits);
+            };
+        }
+
+    }
+
+    /*
+     * Removals through the key set have to go through removeValue, otherwise
+     * primitive slots are left behind and lazy sections aren't pinned
+     */
+    private final class KeySet extends AbstractSet<String> {
+
+        @Override
+        public Iterator<String> iterator() {
+            final Iterator<String> iterator = map.keySet().iterator();
+            return new Iterator<>() {
+
+                private String last;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    return last = iterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    modify();
+                    if (map.get(last) instanceof Slot) {
+                        primitives.removeLong(last);
+                    }
+                    iterator.remove();
+                    last = null;
+                }
+
+            };
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean contains(final Object object) {
+            return map.containsKey(object);
+        }
+
+        @Override
+        public boolean remove(final Object object) {
+            if (!(object instanceof final String key) || !map.containsKey(key)) {
+                return false;
+            }
+            removeValue(key);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            Configuration.this.clear();
+        }
+
+    }
+
     private final Object2ObjectLinkedOpenHashMap<String, Object> map = new Object2ObjectLinkedOpenHashMap<>();
+    private final KeySet keys = new KeySet();
+
+    // Primitive numbers are kept unboxed in here, the map only holds their slot
+    // type to preserve the key order. Floating point values are stored as raw
+    // double bits.
+    private Object2LongOpenHashMap<String> primitives;
+
+    // Set if this configuration belongs to a loaded lazy section, modifying it
+    // pins the section so that it isn't evicted anymore
+    private Configuration lazyRoot;
+    private LazyConfiguration lazy;
 
     /*
      * Keys
      */
 
     public Set<String> keySet() {
-        return map.keySet();
+        return keys;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    /*
+     * Snapshot / Diff
+     */
+
+    /**
+     * Creates an immutable snapshot of the current content of this
+     * configuration
+     *
+     * @return the snapshot
+     */
+    public ConfigSnapshot snapshot() {
+        return ConfigSnapshot.of(this, null);
+    }
+
+    /**
+     * Computes the changes from a previous configuration to this one
+     *
+     * @param  previous the previous configuration
+     *
+     * @return          the difference between both configurations
+     */
+    public ConfigDiff diff(final Configuration previous) {
+        return ConfigDiff.of(previous.snapshot(), snapshot());
     }
 
     /*
@@ -24,36 +170,123 @@ public final class Configuration {
      */
 
     public void set(final String pathUri, final Object object) {
+        if (pathUri.indexOf('.') == -1) {
+            if (object == null) {
+                removeValue(pathUri);
+                return;
+            }
+            checkValue(object);
+            putValue(pathUri, object);
+            return;
+        }
+        set(ConfigPath.cached(pathUri), object);
+    }
+
+    public void set(final ConfigPath path, final Object object) {
         if (object == null) {
-            remove(pathUri);
+            remove(path);
             return;
         }
-        if (object instanceof Configuration) {
-            throw new IllegalStateException("Can't put a configuration into another configuration!");
+        checkValue(object);
+        findParent(path, true).putValue(path.last(), object);
+    }
+
+    public void set(final String pathUri, final byte value) {
+        setPrimitive(pathUri, Slot.BYTE, value);
+    }
+
+    public void set(final ConfigPath path, final byte value) {
+        findParent(path, true).putPrimitive(path.last(), Slot.BYTE, value);
+    }
+
+    public void set(final String pathUri, final short value) {
+        setPrimitive(pathUri, Slot.SHORT, value);
+    }
+
+    public void set(final ConfigPath path, final short value) {
+        findParent(path, true).putPrimitive(path.last(), Slot.SHORT, value);
+    }
+
+    public void set(final String pathUri, final int value) {
+        setPrimitive(pathUri, Slot.INT, value);
+    }
+
+    public void set(final ConfigPath path, final int value) {
+        findParent(path, true).putPrimitive(path.last(), Slot.INT, value);
+    }
+
+    public void set(final String pathUri, final long value) {
+        setPrimitive(pathUri, Slot.LONG, value);
+    }
+
+    public void set(final ConfigPath path, final long value) {
+        findParent(path, true).putPrimitive(path.last(), Slot.LONG, value);
+    }
+
+    public void set(final String pathUri, final float value) {
+        setPrimitive(pathUri, Slot.FLOAT, Double.doubleToRawLongBits(value));
+    }
+
+    public void set(final ConfigPath path, final float value) {
+        findParent(path, true).putPrimitive(path.last(), Slot.FLOAT, Double.doubleToRawLongBits(value));
+    }
+
+    public void set(final String pathUri, final double value) {
+        setPrimitive(pathUri, Slot.DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    public void set(final ConfigPath path, final double value) {
+        findParent(path, true).putPrimitive(path.last(), Slot.DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Sets a section that is only loaded once it is accessed
+     *
+     * @param key     the key of the section
+     * @param section the lazy section
+     */
+    public void setLazy(final String key, final ILazySection section) {
+        modify();
+        if (map.put(key, new LazyConfiguration(Objects.requireNonNull(section, "Section can't be null"))) instanceof Slot) {
+            primitives.removeLong(key);
         }
-        if (!pathUri.contains(".")) {
-            map.put(pathUri, object);
-            return;
+    }
+
+    /**
+     * Gets the lazy section of a key as long as its content wasn't modified
+     *
+     * @param  key the key of the section
+     *
+     * @return     the lazy section or {@code null} if the key doesn't hold a
+     *                 lazy section or if the section was modified
+     */
+    public ILazySection getLazySection(final String key) {
+        if (map.get(key) instanceof final LazyConfiguration lazy && !lazy.isPinned()) {
+            return lazy.section();
         }
-        final String[] path = pathUri.split("\\.");
-        findConfiguration(path, path.length - 1, true).map.put(path[path.length - 1], object);
+        return null;
     }
 
     public void remove(final String pathUri) {
-        if (!pathUri.contains(".")) {
-            map.remove(pathUri);
+        if (pathUri.indexOf('.') == -1) {
+            removeValue(pathUri);
             return;
         }
-        final String[] path = pathUri.split("\\.");
-        final Configuration config = findConfiguration(path, path.length - 1, false);
+        remove(ConfigPath.cached(pathUri));
+    }
+
+    public void remove(final ConfigPath path) {
+        final Configuration config = findParent(path, false);
         if (config == null) {
             return;
         }
-        config.map.remove(path[path.length - 1]);
+        config.removeValue(path.last());
     }
 
     public void clear() {
+        modify();
         map.clear();
+        primitives = null;
     }
 
     /*
@@ -61,25 +294,24 @@ public final class Configuration {
      */
 
     public boolean contains(final String pathUri) {
-        if (!pathUri.contains(".")) {
+        if (pathUri.indexOf('.') == -1) {
             return map.containsKey(pathUri);
         }
-        final String[] path = pathUri.split("\\.");
-        final Configuration config = findConfiguration(path, path.length - 1, false);
-        return config != null && config.map.containsKey(path[path.length - 1]);
+        return contains(ConfigPath.cached(pathUri));
+    }
+
+    public boolean contains(final ConfigPath path) {
+        final Configuration config = findParent(path, false);
+        return config != null && config.map.containsKey(path.last());
     }
 
     public boolean contains(final String pathUri, final Class<?> type) {
-        if (!pathUri.contains(".")) {
-            final Object object = map.get(pathUri);
-            return object != null && type.isAssignableFrom(object.getClass());
-        }
-        final String[] path = pathUri.split("\\.");
-        final Configuration config = findConfiguration(path, path.length - 1, false);
-        if (config == null) {
-            return false;
-        }
-        final Object object = map.get(path[path.length - 1]);
+        final Object object = get(pathUri);
+        return object != null && type.isAssignableFrom(object.getClass());
+    }
+
+    public boolean contains(final ConfigPath path, final Class<?> type) {
+        final Object object = get(path);
         return object != null && type.isAssignableFrom(object.getClass());
     }
 
@@ -88,31 +320,34 @@ public final class Configuration {
      */
 
     public Object get(final String pathUri) {
-        if (!pathUri.contains(".")) {
-            return map.get(pathUri);
+        if (pathUri.indexOf('.') == -1) {
+            return value(pathUri);
         }
-        final String[] path = pathUri.split("\\.");
-        final Configuration config = findConfiguration(path, path.length - 1, false);
+        return get(ConfigPath.cached(pathUri));
+    }
+
+    public Object get(final ConfigPath path) {
+        final Configuration config = findParent(path, false);
         if (config == null) {
             return null;
         }
-        return config.map.get(path[path.length - 1]);
+        return config.value(path.last());
     }
 
     public <E> E get(final String pathUri, final Class<E> type) {
-        final Object object = get(pathUri);
-        if (object == null || !type.isAssignableFrom(object.getClass())) {
-            return null;
-        }
-        return type.cast(object);
+        return cast(get(pathUri), type, null);
+    }
+
+    public <E> E get(final ConfigPath path, final Class<E> type) {
+        return cast(get(path), type, null);
     }
 
     public <E> E get(final String pathUri, final Class<E> type, final E fallback) {
-        final Object object = get(pathUri);
-        if (object == null || !type.isAssignableFrom(object.getClass())) {
-            return fallback;
-        }
-        return type.cast(object);
+        return cast(get(pathUri), type, fallback);
+    }
+
+    public <E> E get(final ConfigPath path, final Class<E> type, final E fallback) {
+        return cast(get(path), type, fallback);
     }
 
     /*
@@ -123,84 +358,136 @@ public final class Configuration {
         return getBoolean(pathUri, false);
     }
 
+    public boolean getBoolean(final ConfigPath path) {
+        return getBoolean(path, false);
+    }
+
     public boolean getBoolean(final String pathUri, final boolean fallback) {
-        final Object object = get(pathUri);
-        if (object == null || !(object instanceof final Boolean value)) {
-            return fallback;
-        }
-        return value;
+        return asBoolean(get(pathUri), fallback);
+    }
+
+    public boolean getBoolean(final ConfigPath path, final boolean fallback) {
+        return asBoolean(get(path), fallback);
     }
 
     public byte getByte(final String pathUri) {
         return getByte(pathUri, (byte) 0);
     }
 
+    public byte getByte(final ConfigPath path) {
+        return getByte(path, (byte) 0);
+    }
+
     public byte getByte(final String pathUri, final byte fallback) {
-        final Object object = get(pathUri);
-        if (object == null || !(object instanceof final Number value)) {
-            return fallback;
+        if (pathUri.indexOf('.') == -1) {
+            return (byte) intValue(pathUri, fallback);
         }
-        return value.byteValue();
+        return getByte(ConfigPath.cached(pathUri), fallback);
+    }
+
+    public byte getByte(final ConfigPath path, final byte fallback) {
+        final Configuration config = findParent(path, false);
+        return config == null ? fallback : (byte) config.intValue(path.last(), fallback);
     }
 
     public short getShort(final String pathUri) {
         return getShort(pathUri, (short) 0);
     }
 
+    public short getShort(final ConfigPath path) {
+        return getShort(path, (short) 0);
+    }
+
     public short getShort(final String pathUri, final short fallback) {
-        final Object object = get(pathUri);
-        if (object == null || !(object instanceof final Number value)) {
-            return fallback;
+        if (pathUri.indexOf('.') == -1) {
+            return (short) intValue(pathUri, fallback);
         }
-        return value.shortValue();
+        return getShort(ConfigPath.cached(pathUri), fallback);
+    }
+
+    public short getShort(final ConfigPath path, final short fallback) {
+        final Configuration config = findParent(path, false);
+        return config == null ? fallback : (short) config.intValue(path.last(), fallback);
     }
 
     public int getInt(final String pathUri) {
         return getInt(pathUri, 0);
     }
 
+    public int getInt(final ConfigPath path) {
+        return getInt(path, 0);
+    }
+
     public int getInt(final String pathUri, final int fallback) {
-        final Object object = get(pathUri);
-        if (object == null || !(object instanceof final Number value)) {
-            return fallback;
+        if (pathUri.indexOf('.') == -1) {
+            return intValue(pathUri, fallback);
         }
-        return value.intValue();
+        return getInt(ConfigPath.cached(pathUri), fallback);
+    }
+
+    public int getInt(final ConfigPath path, final int fallback) {
+        final Configuration config = findParent(path, false);
+        return config == null ? fallback : config.intValue(path.last(), fallback);
     }
 
     public long getLong(final String pathUri) {
         return getLong(pathUri, 0L);
     }
 
+    public long getLong(final ConfigPath path) {
+        return getLong(path, 0L);
+    }
+
     public long getLong(final String pathUri, final long fallback) {
-        final Object object = get(pathUri);
-        if (object == null || !(object instanceof final Number value)) {
-            return fallback;
+        if (pathUri.indexOf('.') == -1) {
+            return longValue(pathUri, fallback);
         }
-        return value.longValue();
+        return getLong(ConfigPath.cached(pathUri), fallback);
+    }
+
+    public long getLong(final ConfigPath path, final long fallback) {
+        final Configuration config = findParent(path, false);
+        return config == null ? fallback : config.longValue(path.last(), fallback);
     }
 
     public float getFloat(final String pathUri) {
         return getFloat(pathUri, 0f);
     }
 
+    public float getFloat(final ConfigPath path) {
+        return getFloat(path, 0f);
+    }
+
     public float getFloat(final String pathUri, final float fallback) {
-        final Object object = get(pathUri);
-        if (object == null || !(object instanceof final Number value)) {
-            return fallback;
+        if (pathUri.indexOf('.') == -1) {
+            return floatValue(pathUri, fallback);
         }
-        return value.floatValue();
+        return getFloat(ConfigPath.cached(pathUri), fallback);
+    }
+
+    public float getFloat(final ConfigPath path, final float fallback) {
+        final Configuration config = findParent(path, false);
+        return config == null ? fallback : config.floatValue(path.last(), fallback);
     }
 
     public double getDouble(final String pathUri) {
         return getDouble(pathUri, 0d);
     }
 
+    public double getDouble(final ConfigPath path) {
+        return getDouble(path, 0d);
+    }
+
     public double getDouble(final String pathUri, final double fallback) {
-        final Object object = get(pathUri);
-        if (object == null || !(object instanceof final Number value)) {
-            return fallback;
+        if (pathUri.indexOf('.') == -1) {
+            return doubleValue(pathUri, fallback);
         }
-        return value.doubleValue();
+        return getDouble(ConfigPath.cached(pathUri), fallback);
+    }
+
+    public double getDouble(final ConfigPath path, final double fallback) {
+        final Configuration config = findParent(path, false);
+        return config == null ? fallback : config.doubleValue(path.last(), fallback);
     }
 
     /*
@@ -211,28 +498,111 @@ public final class Configuration {
         return getNumber(pathUri, 0);
     }
 
+    public Number getNumber(final ConfigPath path) {
+        return getNumber(path, 0);
+    }
+
     public Number getNumber(final String pathUri, final Number fallback) {
-        final Object object = get(pathUri);
-        if (object == null || !(object instanceof final Number value)) {
-            return fallback;
-        }
-        return value.doubleValue();
+        return get(pathUri) instanceof final Number value ? value : fallback;
+    }
+
+    public Number getNumber(final ConfigPath path, final Number fallback) {
+        return get(path) instanceof final Number value ? value : fallback;
     }
 
     public boolean isConfiguration(final String pathUri) {
         return contains(pathUri, Configuration.class);
     }
 
+    public boolean isConfiguration(final ConfigPath path) {
+        return contains(path, Configuration.class);
+    }
+
     public Configuration getConfiguration(final String pathUri) {
         return getConfiguration(pathUri, false);
     }
 
+    public Configuration getConfiguration(final ConfigPath path) {
+        return getConfiguration(path, false);
+    }
+
     public Configuration getConfiguration(final String pathUri, final boolean createIfNotExists) {
-        return findConfiguration(pathUri.split("\\."), createIfNotExists);
+        if (pathUri.indexOf('.') == -1) {
+            return child(pathUri, createIfNotExists);
+        }
+        return getConfiguration(ConfigPath.cached(pathUri), createIfNotExists);
+    }
+
+    public Configuration getConfiguration(final ConfigPath path, final boolean createIfNotExists) {
+        return findConfiguration(path.parts, path.parts.length, createIfNotExists);
     }
 
     public <E> List<E> getList(final String pathUri, final Class<E> type) {
-        final Object object = get(pathUri);
+        return asList(get(pathUri));
+    }
+
+    public <E> List<E> getList(final ConfigPath path, final Class<E> type) {
+        return asList(get(path));
+    }
+
+    public IntList getIntList(final String pathUri) {
+        return asIntList(get(pathUri));
+    }
+
+    public IntList getIntList(final ConfigPath path) {
+        return asIntList(get(path));
+    }
+
+    public LongList getLongList(final String pathUri) {
+        return asLongList(get(pathUri));
+    }
+
+    public LongList getLongList(final ConfigPath path) {
+        return asLongList(get(path));
+    }
+
+    public DoubleList getDoubleList(final String pathUri) {
+        return asDoubleList(get(pathUri));
+    }
+
+    public DoubleList getDoubleList(final ConfigPath path) {
+        return asDoubleList(get(path));
+    }
+
+    public <K, V> Map<K, V> getMap(final String pathUri, final Class<K> keyType, final Class<V> valueType) {
+        return asMap(get(pathUri));
+    }
+
+    public <K, V> Map<K, V> getMap(final ConfigPath path, final Class<K> keyType, final Class<V> valueType) {
+        return asMap(get(path));
+    }
+
+    /*
+     * Helper
+     */
+
+    private static void checkValue(final Object object) {
+        if (object instanceof Configuration) {
+            throw new IllegalStateException("Can't put a configuration into another configuration!");
+        }
+    }
+
+    static <E> E cast(final Object object, final Class<E> type, final E fallback) {
+        if (object == null || !type.isAssignableFrom(object.getClass())) {
+            return fallback;
+        }
+        return type.cast(object);
+    }
+
+    static boolean asBoolean(final Object object, final boolean fallback) {
+        if (object == null || !(object instanceof final Boolean value)) {
+            return fallback;
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> List<E> asList(final Object object) {
         if (object == null || !(object instanceof final List<?> list)) {
             return Collections.emptyList();
         }
@@ -243,8 +613,56 @@ public final class Configuration {
         }
     }
 
-    public <K, V> Map<K, V> getMap(final String pathUri, final Class<K> keyType, final Class<V> valueType) {
-        final Object object = get(pathUri);
+    static IntList asIntList(final Object object) {
+        if (object instanceof final IntList list) {
+            return list;
+        }
+        if (!(object instanceof final List<?> list)) {
+            return IntLists.emptyList();
+        }
+        final IntArrayList output = new IntArrayList(list.size());
+        for (final Object element : list) {
+            if (element instanceof final Number number) {
+                output.add(number.intValue());
+            }
+        }
+        return output;
+    }
+
+    static LongList asLongList(final Object object) {
+        if (object instanceof final LongList list) {
+            return list;
+        }
+        if (!(object instanceof final List<?> list)) {
+            return LongLists.emptyList();
+        }
+        final LongArrayList output = new LongArrayList(list.size());
+        for (final Object element : list) {
+            if (element instanceof final Number number) {
+                output.add(number.longValue());
+            }
+        }
+        return output;
+    }
+
+    static DoubleList asDoubleList(final Object object) {
+        if (object instanceof final DoubleList list) {
+            return list;
+        }
+        if (!(object instanceof final List<?> list)) {
+            return DoubleLists.emptyList();
+        }
+        final DoubleArrayList output = new DoubleArrayList(list.size());
+        for (final Object element : list) {
+            if (element instanceof final Number number) {
+                output.add(number.doubleValue());
+            }
+        }
+        return output;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V> asMap(final Object object) {
         if (object == null || !(object instanceof final Map<?, ?> map)) {
             return Collections.emptyMap();
         }
@@ -255,28 +673,153 @@ public final class Configuration {
         }
     }
 
+    private void setPrimitive(final String pathUri, final Slot slot, final long bits) {
+        if (pathUri.indexOf('.') == -1) {
+            putPrimitive(pathUri, slot, bits);
+            return;
+        }
+        final ConfigPath path = ConfigPath.cached(pathUri);
+        findParent(path, true).putPrimitive(path.last(), slot, bits);
+    }
+
+    private void putPrimitive(final String key, final Slot slot, final long bits) {
+        modify();
+        if (primitives == null) {
+            primitives = new Object2LongOpenHashMap<>();
+        }
+        primitives.put(key, bits);
+        map.put(key, slot);
+    }
+
+    private void putValue(final String key, final Object object) {
+        modify();
+        if (object instanceof final Integer value) {
+            putPrimitive(key, Slot.INT, value);
+        } else if (object instanceof final Long value) {
+            putPrimitive(key, Slot.LONG, value);
+        } else if (object instanceof final Double value) {
+            putPrimitive(key, Slot.DOUBLE, Double.doubleToRawLongBits(value));
+        } else if (object instanceof final Float value) {
+            putPrimitive(key, Slot.FLOAT, Double.doubleToRawLongBits(value));
+        } else if (object instanceof final Short value) {
+            putPrimitive(key, Slot.SHORT, value);
+        } else if (object instanceof final Byte value) {
+            putPrimitive(key, Slot.BYTE, value);
+        } else if (map.put(key, object) instanceof Slot) {
+            primitives.removeLong(key);
+        }
+    }
+
+    private void removeValue(final String key) {
+        modify();
+        if (map.remove(key) instanceof Slot) {
+            primitives.removeLong(key);
+        }
+    }
+
+    Object value(final String key) {
+        final Object object = map.get(key);
+        if (object instanceof final Slot slot) {
+            return slot.box(primitives.getLong(key));
+        }
+        if (object instanceof final LazyConfiguration lazy) {
+            return lazy.get();
+        }
+        return object;
+    }
+
     /*
-     * Helper
+     * Same as value but doesn't load lazy sections that weren't modified
      */
+    Object rawValue(final String key) {
+        if (map.get(key) instanceof final LazyConfiguration lazy && !lazy.isPinned()) {
+            return lazy;
+        }
+        return value(key);
+    }
+
+    void attach(final Configuration root, final LazyConfiguration lazy) {
+        this.lazyRoot = root;
+        this.lazy = lazy;
+        for (final Object object : map.values()) {
+            if (object instanceof final Configuration child) {
+                child.attach(root, null);
+            }
+        }
+    }
+
+    private void modify() {
+        if (lazyRoot != null) {
+            lazyRoot.lazy.pin(lazyRoot);
+        }
+    }
+
+    private int intValue(final String key, final int fallback) {
+        final Object object = map.get(key);
+        if (object instanceof final Slot slot) {
+            final long bits = primitives.getLong(key);
+            return slot.integral ? (int) bits : (int) Double.longBitsToDouble(bits);
+        }
+        return object instanceof final Number number ? number.intValue() : fallback;
+    }
 
-    private Configuration findConfiguration(final String[] path, final boolean createIfNotExists) {
-        return findConfiguration(path, path.length, createIfNotExists);
+    private long longValue(final String key, final long fallback) {
+        final Object object = map.get(key);
+        if (object instanceof final Slot slot) {
+            final long bits = primitives.getLong(key);
+            return slot.integral ? bits : (long) Double.longBitsToDouble(bits);
+        }
+        return object instanceof final Number number ? number.longValue() : fallback;
+    }
+
+    private float floatValue(final String key, final float fallback) {
+        final Object object = map.get(key);
+        if (object instanceof final Slot slot) {
+            final long bits = primitives.getLong(key);
+            return slot.integral ? (float) bits : (float) Double.longBitsToDouble(bits);
+        }
+        return object instanceof final Number number ? number.floatValue() : fallback;
+    }
+
+    private double doubleValue(final String key, final double fallback) {
+        final Object object = map.get(key);
+        if (object instanceof final Slot slot) {
+            final long bits = primitives.getLong(key);
+            return slot.integral ? (double) bits : Double.longBitsToDouble(bits);
+        }
+        return object instanceof final Number number ? number.doubleValue() : fallback;
+    }
+
+    private Configuration child(final String key, final boolean createIfNotExists) {
+        final Object object = map.get(key);
+        if (object instanceof final Configuration config) {
+            return config;
+        }
+        if (object instanceof final LazyConfiguration lazy) {
+            return lazy.get();
+        }
+        if (!createIfNotExists) {
+            return null;
+        }
+        modify();
+        final Configuration config = new Configuration();
+        config.lazyRoot = lazyRoot;
+        if (map.put(key, config) instanceof Slot) {
+            primitives.removeLong(key);
+        }
+        return config;
+    }
+
+    private Configuration findParent(final ConfigPath path, final boolean createIfNotExists) {
+        return findConfiguration(path.parts, path.parts.length - 1, createIfNotExists);
     }
 
     private Configuration findConfiguration(final String[] path, int length, final boolean createIfNotExists) {
         Configuration current = this;
-        String part;
         length = Math.min(length, path.length);
         for (int index = 0; index < length; index++) {
-            if (!current.contains(part = path[index]) || !(current.map.get(part) instanceof final Configuration config)) {
-                if (!createIfNotExists) {
-                    return null;
-                }
-                final Configuration tmp = new Configuration();
-                current.map.put(part, tmp);
-                current = tmp;
-            } else {
-                current = config;
+            if ((current = current.child(path[index], createIfNotExists)) == null) {
+                return null;
             }
         }
         return current;
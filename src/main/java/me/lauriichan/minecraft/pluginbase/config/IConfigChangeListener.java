@@ -0,0 +1,15 @@
+package me.lauriichan.minecraft.pluginbase.config;
+
+@FunctionalInterface
+public interface IConfigChangeListener {
+
+    /**
+     * Called after the data of a config changed
+     *
+     * @param diff     the changes at or below the path the listener was
+     *                     registered for
+     * @param snapshot the snapshot of the new config data
+     */
+    void onChange(ConfigDiff diff, ConfigSnapshot snapshot);
+
+}
@@ -18,4 +18,21 @@ public interface IConfigExtension extends IExtension {
 
     default void onSave(final Configuration configuration) throws Exception {}
 
+    /**
+     * Writes only the values that were modified since the last load or save
+     * into the previously loaded configuration
+     *
+     * @param  configuration the configuration that was last loaded or saved
+     *
+     * @return               {@code true} if the modified values were written,
+     *                           {@code false} if incremental saves are not
+     *                           supported and {@link #onSave(Configuration)}
+     *                           should be used instead
+     *
+     * @throws Exception     if an error occurs while writing the values
+     */
+    default boolean onSaveModified(final Configuration configuration) throws Exception {
+        return false;
+    }
+
 }
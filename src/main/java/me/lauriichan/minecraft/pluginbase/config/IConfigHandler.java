@@ -8,4 +8,28 @@ public interface IConfigHandler {
 
     void save(Configuration configuration, IDataSource source) throws Exception;
 
+    /**
+     * Checks if the handler writes the whole config into the data source that
+     * it is given. Handlers that spread a config over multiple sources return
+     * {@code false} and are always given the original source when saving.
+     * 
+     * @return {@code true} if the config is stored in a single source otherwise
+     *             {@code false}
+     */
+    default boolean isSingleSource() {
+        return true;
+    }
+
+    /**
+     * Checks if configs loaded by this handler can be kept in the binary config
+     * cache. The handler has to be a single source handler that loads the same
+     * configuration for the same content every time.
+     * 
+     * @return {@code true} if the loaded configs can be cached otherwise
+     *             {@code false}
+     */
+    default boolean isCacheable() {
+        return isSingleSource();
+    }
+
 }
@@ -0,0 +1,14 @@
+package me.lauriichan.minecraft.pluginbase.config;
+
+/**
+ * A configuration section that is only loaded when it is accessed for the
+ * first time. The section can be loaded again at any time after it was evicted
+ * and may be loaded concurrently for snapshots, so implementations have to be
+ * thread-safe.
+ */
+@FunctionalInterface
+public interface ILazySection {
+
+    void load(Configuration configuration) throws Exception;
+
+}
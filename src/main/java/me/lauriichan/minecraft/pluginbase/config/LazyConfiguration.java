@@ -0,0 +1,68 @@
+package me.lauriichan.minecraft.pluginbase.config;
+
+import java.lang.ref.SoftReference;
+
+final class LazyConfiguration {
+
+    private final ILazySection section;
+
+    // Unmodified sections can be evicted by the gc and loaded again, modified ones are pinned
+    private SoftReference<Configuration> loaded;
+    private Configuration pinned;
+
+    private volatile SoftReference<ConfigSnapshot> snapshot;
+
+    LazyConfiguration(final ILazySection section) {
+        this.section = section;
+    }
+
+    ILazySection section() {
+        return section;
+    }
+
+    boolean isPinned() {
+        return pinned != null;
+    }
+
+    Configuration get() {
+        if (pinned != null) {
+            return pinned;
+        }
+        Configuration configuration = loaded == null ? null : loaded.get();
+        if (configuration != null) {
+            return configuration;
+        }
+        configuration = load();
+        configuration.attach(configuration, this);
+        loaded = new SoftReference<>(configuration);
+        return configuration;
+    }
+
+    void pin(final Configuration configuration) {
+        pinned = configuration;
+        loaded = null;
+    }
+
+    ConfigSnapshot snapshot() {
+        final SoftReference<ConfigSnapshot> reference = snapshot;
+        ConfigSnapshot current = reference == null ? null : reference.get();
+        if (current != null) {
+            return current;
+        }
+        // Snapshots are read from other threads, so they never share the live configuration
+        current = ConfigSnapshot.of(load(), null);
+        snapshot = new SoftReference<>(current);
+        return current;
+    }
+
+    private Configuration load() {
+        final Configuration configuration = new Configuration();
+        try {
+            section.load(configuration);
+        } catch (final Exception exception) {
+            throw new IllegalStateException("Failed to load lazy configuration section", exception);
+        }
+        return configuration;
+    }
+
+}
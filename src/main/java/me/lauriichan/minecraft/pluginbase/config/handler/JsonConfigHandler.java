@@ -1,143 +1,531 @@
 package me.lauriichan.minecraft.pluginbase.config.handler;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import me.lauriichan.minecraft.pluginbase.config.Configuration;
 import me.lauriichan.minecraft.pluginbase.config.IConfigHandler;
+import me.lauriichan.minecraft.pluginbase.config.ILazySection;
 import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
 import me.lauriichan.minecraft.pluginbase.util.Json;
 
 public final class JsonConfigHandler implements IConfigHandler {
 
-    public static final JsonConfigHandler JSON = new JsonConfigHandler();
+    public static final JsonConfigHandler JSON = new JsonConfigHandler(false);
+    /**
+     * Json handler that only indexes the top-level sections when loading,
+     * sections are parsed when they are accessed for the first time. Sections
+     * that weren't modified are written back as they were read.
+     */
+    public static final JsonConfigHandler LAZY_JSON = new JsonConfigHandler(true);
 
     private final Json json = new Json(new GsonBuilder().setPrettyPrinting().setLenient().serializeNulls().disableHtmlEscaping().create());
+    private final boolean lazy;
 
-    private JsonConfigHandler() {}
+    private JsonConfigHandler(final boolean lazy) {
+        this.lazy = lazy;
+    }
 
     public Json json() {
         return json;
     }
 
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    @Override
+    public boolean isCacheable() {
+        // Restoring from the cache would load every lazy section
+        return !lazy;
+    }
+
     @Override
     public void load(final Configuration configuration, final IDataSource source) throws Exception {
-        JsonElement element;
-        try (BufferedReader reader = source.openReader()) {
-            element = json.asJson(reader);
+        if (lazy) {
+            final byte[] content = source.readAllBytes();
+            if (loadLazy(configuration, content)) {
+                return;
+            }
+            // Not in the strict format that we write, so let the lenient reader deal with it
+            configuration.clear();
+            try (JsonReader reader = json.newReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+                if (!Json.isObject(reader)) {
+                    throw new IllegalStateException("Config source doesn't contain a JsonObject");
+                }
+                loadToConfig(reader, configuration);
+            }
+            return;
         }
-        if (!element.isJsonObject()) {
-            throw new IllegalStateException("Config source doesn't contain a JsonObject");
+        try (JsonReader reader = json.newReader(source.openReader())) {
+            if (!Json.isObject(reader)) {
+                throw new IllegalStateException("Config source doesn't contain a JsonObject");
+            }
+            loadToConfig(reader, configuration);
         }
-        loadToConfig(element.getAsJsonObject(), configuration);
     }
 
-    private void loadToConfig(final JsonObject object, final Configuration configuration) {
-        for (final String key : object.keySet()) {
-            final JsonElement element = object.get(key);
-            if (element.isJsonNull()) {
-                continue;
+    private void loadToConfig(final JsonReader reader, final Configuration configuration) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            loadEntry(reader, configuration, reader.nextName());
+        }
+        reader.endObject();
+    }
+
+    private void loadEntry(final JsonReader reader, final Configuration configuration, final String key) throws IOException {
+        switch (reader.peek()) {
+        case BEGIN_OBJECT: {
+            // A duplicate key replaces the earlier section instead of merging into it, the same as JsonObject and setLazy
+            final Configuration section = configuration.getConfiguration(key, true);
+            section.clear();
+            loadToConfig(reader, section);
+            break;
+        }
+        case BEGIN_ARRAY:
+            configuration.set(key, readList(reader));
+            break;
+        case NUMBER:
+            setNumber(configuration, key, reader.nextString());
+            break;
+        case BOOLEAN:
+            configuration.set(key, reader.nextBoolean());
+            break;
+        case STRING:
+            configuration.set(key, reader.nextString());
+            break;
+        default:
+            reader.skipValue();
+            break;
+        }
+    }
+
+    /*
+     * Lazy loading
+     */
+
+    private boolean loadLazy(final Configuration configuration, final byte[] content) throws IOException {
+        final JsonScanner scanner = new JsonScanner(content);
+        if (!scanner.consume('{')) {
+            return false;
+        }
+        if (scanner.consume('}')) {
+            return scanner.isEnd();
+        }
+        do {
+            final int keyStart = scanner.position();
+            if (scanner.peek() != '"' || !scanner.skipValue()) {
+                return false;
             }
-            if (element.isJsonObject()) {
-                loadToConfig(element.getAsJsonObject(), configuration.getConfiguration(key, true));
-                continue;
+            final String key = readString(content, keyStart, scanner.position());
+            if (!scanner.consume(':')) {
+                return false;
             }
-            if (element.isJsonArray()) {
-                configuration.set(key, deserialize(element.getAsJsonArray()));
+            final int valueStart = scanner.position();
+            final boolean section = scanner.peek() == '{';
+            if (!scanner.skipValue()) {
+                return false;
+            }
+            if (section) {
+                configuration.setLazy(key, new JsonSection(content, valueStart, scanner.position()));
                 continue;
             }
-            configuration.set(key, deserialize(element.getAsJsonPrimitive()));
+            try (JsonReader reader = json.newReader(new StringReader(new String(content, valueStart, scanner.position() - valueStart, StandardCharsets.UTF_8)))) {
+                loadEntry(reader, configuration, key);
+            }
+        } while (scanner.consume(','));
+        return scanner.consume('}') && scanner.isEnd();
+    }
+
+    private String readString(final byte[] content, final int start, final int end) throws IOException {
+        for (int index = start + 1; index < end - 1; index++) {
+            if (content[index] == '\\') {
+                try (JsonReader reader = json.newReader(new StringReader(new String(content, start, end - start, StandardCharsets.UTF_8)))) {
+                    return reader.nextString();
+                }
+            }
         }
+        return new String(content, start + 1, end - start - 2, StandardCharsets.UTF_8);
     }
 
-    @SuppressWarnings({
-        "rawtypes",
-        "unchecked"
-    })
-    private List deserialize(final JsonArray array) {
-        final ObjectArrayList list = new ObjectArrayList();
-        for (final JsonElement arrayElement : array) {
-            if (arrayElement.isJsonObject() || arrayElement.isJsonNull()) {
-                continue;
+    private final class JsonSection implements ILazySection {
+
+        // The whole source is kept once for all sections, this is still a
+        // fraction of the memory that the parsed sections would need
+        private final byte[] content;
+        private final int start;
+        private final int end;
+
+        public JsonSection(final byte[] content, final int start, final int end) {
+            this.content = content;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void load(final Configuration configuration) throws Exception {
+            try (JsonReader reader = json
+                .newReader(new InputStreamReader(new ByteArrayInputStream(content, start, end - start), StandardCharsets.UTF_8))) {
+                loadToConfig(reader, configuration);
             }
-            if (arrayElement.isJsonArray()) {
-                list.add(deserialize(arrayElement.getAsJsonArray()));
-                continue;
+        }
+
+        public String raw() {
+            return new String(content, start, end - start, StandardCharsets.UTF_8);
+        }
+
+    }
+
+    /*
+     * Finds the boundaries of values in strict json without parsing them, all
+     * structural characters are ascii so this works on the utf-8 bytes directly
+     */
+    private static final class JsonScanner {
+
+        private final byte[] content;
+        private int position = 0;
+
+        public JsonScanner(final byte[] content) {
+            this.content = content;
+        }
+
+        public int position() {
+            return position;
+        }
+
+        public boolean isEnd() {
+            skipWhitespace();
+            return position == content.length;
+        }
+
+        public int peek() {
+            return position < content.length ? content[position] : -1;
+        }
+
+        public boolean consume(final char character) {
+            skipWhitespace();
+            if (peek() != character) {
+                return false;
+            }
+            position++;
+            skipWhitespace();
+            return true;
+        }
+
+        /*
+         * Skips the value at the current position, the position is right after
+         * the value afterwards
+         */
+        public boolean skipValue() {
+            final int first = peek();
+            if (first == '"') {
+                return skipString();
+            }
+            if (first == '{' || first == '[') {
+                return skipContainer();
+            }
+            final int start = position;
+            while (position < content.length && !isDelimiter(content[position])) {
+                position++;
+            }
+            return position != start;
+        }
+
+        private boolean skipString() {
+            position++;
+            while (position < content.length) {
+                final byte current = content[position++];
+                if (current == '\\') {
+                    position++;
+                } else if (current == '"') {
+                    return true;
+                }
             }
-            list.add(deserialize(arrayElement.getAsJsonPrimitive()));
+            return false;
         }
-        return list;
+
+        private boolean skipContainer() {
+            int depth = 0;
+            while (position < content.length) {
+                final byte current = content[position];
+                if (current == '"') {
+                    if (!skipString()) {
+                        return false;
+                    }
+                    continue;
+                }
+                position++;
+                if (current == '{' || current == '[') {
+                    depth++;
+                } else if ((current == '}' || current == ']') && --depth == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < content.length && isWhitespace(content[position])) {
+                position++;
+            }
+        }
+
+        private static boolean isWhitespace(final byte value) {
+            return value == ' ' || value == '\t' || value == '\n' || value == '\r';
+        }
+
+        private static boolean isDelimiter(final byte value) {
+            return value == ',' || value == '}' || value == ']' || value == ':' || isWhitespace(value);
+        }
+
+    }
+
+    private void setNumber(final Configuration configuration, final String key, final String raw) {
+        configuration.set(key, parseNumber(raw));
+    }
+
+    private List<?> readList(final JsonReader reader) throws IOException {
+        reader.beginArray();
+        final NumberArray numbers = new NumberArray();
+        ObjectArrayList<Object> list = null;
+        while (reader.hasNext()) {
+            final JsonToken token = reader.peek();
+            if (list == null) {
+                // Stay on the primitive path until the first element that isn't a number
+                if (token == JsonToken.NUMBER) {
+                    final String raw = reader.nextString();
+                    if (numbers.add(raw)) {
+                        continue;
+                    }
+                    list = numbers.toObjectList();
+                    list.add(parseNumber(raw));
+                    continue;
+                }
+                list = numbers.toObjectList();
+            }
+            switch (token) {
+            case BEGIN_ARRAY:
+                list.add(readList(reader));
+                break;
+            case NUMBER:
+                list.add(parseNumber(reader.nextString()));
+                break;
+            case BOOLEAN:
+                list.add(reader.nextBoolean());
+                break;
+            case STRING:
+                list.add(reader.nextString());
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endArray();
+        if (list != null) {
+            return list;
+        }
+        return numbers.isEmpty() ? new ObjectArrayList<>() : numbers.toList();
+    }
+
+    private static Object parseNumber(final String raw) {
+        if (!isIntegral(raw)) {
+            final double value = Double.parseDouble(raw);
+            return isExactDouble(raw, value) ? value : new BigDecimal(raw);
+        }
+        try {
+            return Long.parseLong(raw);
+        } catch (final NumberFormatException nfe) {
+            return new BigInteger(raw);
+        }
+    }
+
+    /*
+     * A double is only used if it is written back exactly as it was read,
+     * everything else (e.g. "1e3", "2.50" or more digits than a double can
+     * hold) stays a BigDecimal
+     */
+    private static boolean isExactDouble(final String raw, final double value) {
+        return Double.toString(value).equals(raw);
     }
 
-    private Object deserialize(final JsonPrimitive primitive) {
-        if (primitive.isBoolean()) {
-            return primitive.getAsBoolean();
+    private static boolean isIntegral(final String raw) {
+        for (int index = 0; index < raw.length(); index++) {
+            final char character = raw.charAt(index);
+            if (character == '.' || character == 'e' || character == 'E') {
+                return false;
+            }
         }
-        if (primitive.isNumber()) {
+        return true;
+    }
+
+    private static final class NumberArray {
+
+        // Either only integers or only decimals, decimals are stored as raw
+        // double bits. Mixed arrays fall back to an object list so that
+        // integers aren't written back as decimals.
+        private long[] values = new long[16];
+        private boolean decimal = false;
+        private int size = 0;
+        private boolean fitsInt = true;
+
+        public boolean add(final String raw) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            if (!isIntegral(raw)) {
+                if (size != 0 && !decimal) {
+                    return false;
+                }
+                final double value = Double.parseDouble(raw);
+                if (!isExactDouble(raw, value)) {
+                    return false;
+                }
+                decimal = true;
+                values[size++] = Double.doubleToRawLongBits(value);
+                return true;
+            }
+            if (decimal) {
+                return false;
+            }
+            final long value;
             try {
-                return primitive.getAsBigInteger();
+                value = Long.parseLong(raw);
             } catch (final NumberFormatException nfe) {
-                return primitive.getAsBigDecimal();
+                return false;
+            }
+            fitsInt &= value == (int) value;
+            values[size++] = value;
+            return true;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public List<?> toList() {
+            if (decimal) {
+                final double[] doubles = new double[size];
+                for (int index = 0; index < size; index++) {
+                    doubles[index] = Double.longBitsToDouble(values[index]);
+                }
+                return DoubleArrayList.wrap(doubles);
+            }
+            if (!fitsInt) {
+                return LongArrayList.wrap(values, size);
             }
+            final int[] ints = new int[size];
+            for (int index = 0; index < size; index++) {
+                ints[index] = (int) values[index];
+            }
+            return IntArrayList.wrap(ints);
         }
-        return primitive.getAsString();
+
+        public ObjectArrayList<Object> toObjectList() {
+            final ObjectArrayList<Object> list = new ObjectArrayList<>(Math.max(size, 16));
+            for (int index = 0; index < size; index++) {
+                if (decimal) {
+                    list.add(Double.longBitsToDouble(values[index]));
+                    continue;
+                }
+                list.add(values[index]);
+            }
+            return list;
+        }
+
     }
 
     @Override
     public void save(final Configuration configuration, final IDataSource source) throws Exception {
-        final JsonObject root = new JsonObject();
-        saveToObject(root, configuration);
-        try (BufferedWriter writer = source.openWriter()) {
-            writer.write(json.asString(root));
+        try (JsonWriter writer = json.newWriter(source.openWriter())) {
+            saveToWriter(writer, configuration);
         }
     }
 
-    private void saveToObject(final JsonObject object, final Configuration configuration) {
-        JsonElement json;
+    private void saveToWriter(final JsonWriter writer, final Configuration configuration) throws IOException {
+        writer.beginObject();
         for (final String key : configuration.keySet()) {
-            if (configuration.isConfiguration(key)) {
-                final JsonObject child = new JsonObject();
-                saveToObject(child, configuration.getConfiguration(key));
-                object.add(key, child);
+            if (configuration.getLazySection(key) instanceof final JsonSection section) {
+                // Unmodified sections are written as they were read, without loading them
+                writer.name(key);
+                writer.jsonValue(section.raw());
+                continue;
+            }
+            final Object object = configuration.get(key);
+            if (object instanceof final Configuration child) {
+                writer.name(key);
+                saveToWriter(writer, child);
                 continue;
             }
-            json = serialize(configuration.get(key));
-            if (json == null) {
+            if (!isSupported(object)) {
                 continue;
             }
-            object.add(key, json);
+            writer.name(key);
+            serialize(writer, object);
         }
+        writer.endObject();
     }
 
-    private JsonElement serialize(final Object object) {
-        if (object instanceof final List<?> list) {
-            final JsonArray array = new JsonArray();
+    private static boolean isSupported(final Object object) {
+        return object instanceof List || object instanceof String || object instanceof Number || object instanceof Character
+            || object instanceof Boolean;
+    }
+
+    private void serialize(final JsonWriter writer, final Object object) throws IOException {
+        if (object instanceof final IntList list) {
+            writer.beginArray();
+            for (int index = 0; index < list.size(); index++) {
+                writer.value(list.getInt(index));
+            }
+            writer.endArray();
+        } else if (object instanceof final LongList list) {
+            writer.beginArray();
+            for (int index = 0; index < list.size(); index++) {
+                writer.value(list.getLong(index));
+            }
+            writer.endArray();
+        } else if (object instanceof final DoubleList list) {
+            writer.beginArray();
+            for (int index = 0; index < list.size(); index++) {
+                writer.value(list.getDouble(index));
+            }
+            writer.endArray();
+        } else if (object instanceof final List<?> list) {
+            writer.beginArray();
             for (final Object elem : list) {
-                array.add(serialize(elem));
+                serialize(writer, elem);
             }
-            return array;
-        }
-        if (object instanceof final String string) {
-            return new JsonPrimitive(string);
-        }
-        if (object instanceof final Number number) {
-            return new JsonPrimitive(number);
-        }
-        if (object instanceof final Character character) {
-            return new JsonPrimitive(character);
-        }
-        if (object instanceof final Boolean bool) {
-            return new JsonPrimitive(bool);
+            writer.endArray();
+        } else if (object instanceof final String string) {
+            writer.value(string);
+        } else if (object instanceof final Number number) {
+            writer.value(number);
+        } else if (object instanceof final Character character) {
+            writer.value(character.toString());
+        } else if (object instanceof final Boolean bool) {
+            writer.value(bool.booleanValue());
+        } else {
+            writer.nullValue();
         }
-        return null;
     }
 
 }
@@ -0,0 +1,14 @@
+package me.lauriichan.minecraft.pluginbase.extension;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ExtensionDependency {
+
+    Class<? extends IExtension>[] value();
+
+}
@@ -0,0 +1,32 @@
+package me.lauriichan.minecraft.pluginbase.extension;
+
+import me.lauriichan.minecraft.pluginbase.BasePlugin;
+
+public interface IExtensionFactory {
+
+    /**
+     * Creates a new instance of an extension implementation
+     *
+     * @param  index     the position of the implementation in the extension index
+     * @param  plugin    the plugin that owns the extension
+     *
+     * @return           the created instance or {@code null} if there is no
+     *                       implementation at that position
+     *
+     * @throws Throwable if the constructor of the implementation fails
+     */
+    IExtension create(int index, BasePlugin<?> plugin) throws Throwable;
+
+    /**
+     * Gets the name of the implementation that is created at a position
+     *
+     * @param  index the position of the implementation in the extension index
+     *
+     * @return       the class name as written to the extension index or
+     *                   {@code null} if the factory can't create it
+     */
+    default String type(final int index) {
+        return null;
+    }
+
+}
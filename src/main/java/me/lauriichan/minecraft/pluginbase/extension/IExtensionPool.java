@@ -12,8 +12,12 @@ public interface IExtensionPool<T extends IExtension> {
 
     boolean instantiated();
 
+    boolean lazy();
+
     List<Class<? extends T>> extensionClasses();
 
+    List<ILazyExtension<T>> lazyExtensions();
+
     default void callInstances(final Consumer<T> call) {
         Objects.requireNonNull(call);
         for (final T extension : extensions()) {
@@ -21,6 +25,21 @@ public interface IExtensionPool<T extends IExtension> {
         }
     }
 
+    default void callInstances(final Consumer<T> call, final boolean skipUnmaterialized) {
+        Objects.requireNonNull(call);
+        if (!lazy()) {
+            callInstances(call);
+            return;
+        }
+        T instance;
+        for (final ILazyExtension<T> extension : lazyExtensions()) {
+            if (skipUnmaterialized && !extension.materialized() || (instance = extension.get()) == null) {
+                continue;
+            }
+            call.accept(instance);
+        }
+    }
+
     default void callClasses(final Consumer<Class<? extends T>> call) {
         Objects.requireNonNull(call);
         for (final Class<? extends T> extension : extensionClasses()) {
@@ -0,0 +1,28 @@
+package me.lauriichan.minecraft.pluginbase.extension;
+
+public interface ILazyExtension<T extends IExtension> {
+
+    /**
+     * Gets the implementation type of the extension
+     * 
+     * @return the implementation type
+     */
+    Class<? extends T> type();
+
+    /**
+     * Gets the extension instance, creating it on first access
+     * 
+     * @return the instance or {@code null} if it couldn't be created
+     */
+    T get();
+
+    /**
+     * Checks if the extension instance was already created (or failed to be
+     * created)
+     * 
+     * @return {@code true} if the instance was already requested otherwise
+     *             {@code false}
+     */
+    boolean materialized();
+
+}
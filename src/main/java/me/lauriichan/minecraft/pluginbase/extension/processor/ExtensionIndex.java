@@ -0,0 +1,139 @@
+package me.lauriichan.minecraft.pluginbase.extension.processor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class ExtensionIndex {
+
+    public static final int MAGIC = 0x50424549;
+    public static final int VERSION = 1;
+
+    private static final int FLAG_CONDITION = 0x1;
+    private static final int FLAG_ACTIVE_BY_DEFAULT = 0x2;
+
+    private static final String[] EMPTY_STRINGS = new String[0];
+
+    public static final class Condition {
+
+        private final String name;
+        private final boolean condition;
+        private final boolean activeByDefault;
+
+        public Condition(final String name, final boolean condition, final boolean activeByDefault) {
+            this.name = name;
+            this.condition = condition;
+            this.activeByDefault = activeByDefault;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public boolean condition() {
+            return condition;
+        }
+
+        public boolean activeByDefault() {
+            return activeByDefault;
+        }
+
+    }
+
+    public static final class Entry {
+
+        private final String className;
+        private final List<Condition> conditions;
+        private final List<String[]> constructors;
+
+        public Entry(final String className, final List<Condition> conditions, final List<String[]> constructors) {
+            this.className = className;
+            this.conditions = Collections.unmodifiableList(conditions);
+            this.constructors = Collections.unmodifiableList(constructors);
+        }
+
+        public String className() {
+            return className;
+        }
+
+        public List<Condition> conditions() {
+            return conditions;
+        }
+
+        /**
+         * Gets the parameter types of all public constructors
+         *
+         * @return the erased parameter type names of each public constructor
+         */
+        public List<String[]> constructors() {
+            return constructors;
+        }
+
+    }
+
+    private ExtensionIndex() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static void write(final DataOutput output, final List<Entry> entries) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeInt(entries.size());
+        for (final Entry entry : entries) {
+            output.writeUTF(entry.className);
+            output.writeByte(entry.conditions.size());
+            for (final Condition condition : entry.conditions) {
+                output.writeUTF(condition.name);
+                output.writeByte((condition.condition ? FLAG_CONDITION : 0) | (condition.activeByDefault ? FLAG_ACTIVE_BY_DEFAULT : 0));
+            }
+            output.writeByte(entry.constructors.size());
+            for (final String[] parameters : entry.constructors) {
+                output.writeByte(parameters.length);
+                for (final String parameter : parameters) {
+                    output.writeUTF(parameter);
+                }
+            }
+        }
+    }
+
+    public static List<Entry> read(final DataInput input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Invalid extension index header");
+        }
+        final int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported extension index version " + version);
+        }
+        final int size = input.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid extension index size " + size);
+        }
+        final ArrayList<Entry> entries = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            final String className = input.readUTF();
+            final int conditionCount = input.readUnsignedByte();
+            final ArrayList<Condition> conditions = new ArrayList<>(conditionCount);
+            for (int idx = 0; idx < conditionCount; idx++) {
+                final String name = input.readUTF();
+                final int flags = input.readUnsignedByte();
+                conditions.add(new Condition(name, (flags & FLAG_CONDITION) != 0, (flags & FLAG_ACTIVE_BY_DEFAULT) != 0));
+            }
+            final int constructorCount = input.readUnsignedByte();
+            final ArrayList<String[]> constructors = new ArrayList<>(constructorCount);
+            for (int idx = 0; idx < constructorCount; idx++) {
+                final int parameterCount = input.readUnsignedByte();
+                final String[] parameters = parameterCount == 0 ? EMPTY_STRINGS : new String[parameterCount];
+                for (int param = 0; param < parameterCount; param++) {
+                    parameters[param] = input.readUTF();
+                }
+                constructors.add(parameters);
+            }
+            entries.add(new Entry(className, conditions, constructors));
+        }
+        return entries;
+    }
+
+}
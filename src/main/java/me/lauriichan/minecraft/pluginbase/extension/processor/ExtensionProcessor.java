@@ -1,6 +1,8 @@
 package me.lauriichan.minecraft.pluginbase.extension.processor;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -16,35 +18,55 @@ import javax.lang.model.SourceVersion;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic.Kind;
 import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
 import javax.tools.StandardLocation;
 
 import me.lauriichan.laylib.logger.util.StringUtil;
 import me.lauriichan.minecraft.pluginbase.extension.Extension;
+import me.lauriichan.minecraft.pluginbase.extension.ExtensionCondition;
 import me.lauriichan.minecraft.pluginbase.extension.ExtensionPoint;
 import me.lauriichan.minecraft.pluginbase.extension.IExtension;
+import me.lauriichan.minecraft.pluginbase.extension.IExtensionFactory;
 
 public class ExtensionProcessor extends AbstractProcessor {
 
     public static final String EXTENSION_RESOURCE = "META-INF/extension/";
+    public static final String EXTENSION_INDEX_RESOURCE = "META-INF/extension-index/";
 
     public static String extensionPath(final String typeName) {
         return EXTENSION_RESOURCE + typeName;
     }
 
-    private HashSet<String> extensions;
+    public static final String EXTENSION_FACTORY_SUFFIX = "$ExtensionFactory";
+
+    private static final String PLUGIN_TYPE = "me.lauriichan.minecraft.pluginbase.BasePlugin";
+
+    public static String extensionIndexPath(final String typeName) {
+        return EXTENSION_INDEX_RESOURCE + typeName;
+    }
+
+    public static String extensionFactoryName(final String binaryTypeName) {
+        return binaryTypeName + EXTENSION_FACTORY_SUFFIX;
+    }
+
+    private HashMap<String, TypeElement> extensions;
     private HashMap<String, HashSet<String>> extensionPoints;
+    private HashMap<String, TypeElement> extensionPointElements;
 
     private Types typeHelper;
     private Elements elementHelper;
 
     private TypeMirror extensionType;
+    private TypeMirror pluginType;
 
     @Override
     public synchronized void init(final ProcessingEnvironment processingEnv) {
@@ -53,6 +75,8 @@ public class ExtensionProcessor extends AbstractProcessor {
         this.typeHelper = processingEnv.getTypeUtils();
         this.elementHelper = processingEnv.getElementUtils();
         this.extensionType = elementHelper.getTypeElement(IExtension.class.getName()).asType();
+        final TypeElement pluginElement = elementHelper.getTypeElement(PLUGIN_TYPE);
+        this.pluginType = pluginElement == null ? null : typeHelper.erasure(pluginElement.asType());
     }
 
     @Override
@@ -70,8 +94,9 @@ public class ExtensionProcessor extends AbstractProcessor {
         if (roundEnv.processingOver()) {
             return false;
         }
-        extensions = new HashSet<>();
+        extensions = new HashMap<>();
         extensionPoints = new HashMap<>();
+        extensionPointElements = new HashMap<>();
 
         log(Kind.NOTE, "Processing @%s", Extension.class.getSimpleName());
         for (final Element element : roundEnv.getElementsAnnotatedWith(Extension.class)) {
@@ -99,12 +124,21 @@ public class ExtensionProcessor extends AbstractProcessor {
                 }
                 final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
                     EXTENSION_RESOURCE + entry.getKey());
+                final ArrayList<String> implementations = new ArrayList<>(entry.getValue());
+                final ArrayList<ExtensionIndex.Entry> indexEntries = new ArrayList<>(implementations.size());
                 try (BufferedWriter writer = new BufferedWriter(file.openWriter())) {
-                    for (final String value : entry.getValue()) {
+                    for (final String value : implementations) {
                         writer.write(value);
                         writer.write('\n');
+                        indexEntries.add(createIndexEntry(value, extensions.get(value)));
                     }
                 }
+                final FileObject indexFile = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    EXTENSION_INDEX_RESOURCE + entry.getKey());
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(indexFile.openOutputStream()))) {
+                    ExtensionIndex.write(output, indexEntries);
+                }
+                createFactory(extensionPointElements.get(entry.getKey()), implementations);
             }
         } catch (final IOException e) {
             log(Kind.ERROR, StringUtil.stackTraceToString(e));
@@ -142,10 +176,10 @@ public class ExtensionProcessor extends AbstractProcessor {
             return;
         }
         final String typeName = typeHelper.asElement(type).toString();
-        if (extensions.contains(typeName)) {
+        if (extensions.containsKey(typeName)) {
             return; // Don't know if that will even happen
         }
-        extensions.add(typeName);
+        extensions.put(typeName, typeElement);
         log(Kind.NOTE, "Collecting ExtensionPoints for '%s'", typeName);
         addToPoints(typeName, typeElement);
     }
@@ -173,6 +207,7 @@ public class ExtensionProcessor extends AbstractProcessor {
             final HashSet<String> set = new HashSet<>();
             set.add(name);
             extensionPoints.put(typeName, set);
+            extensionPointElements.put(typeName, typeElement);
         }
         final TypeMirror mirror = superElement.getSuperclass();
         if (!typeHelper.isAssignable(mirror, extensionType) || !(typeHelper.asElement(mirror) instanceof final TypeElement typeElement)) {
@@ -181,6 +216,124 @@ public class ExtensionProcessor extends AbstractProcessor {
         addToPoints(name, typeElement);
     }
 
+    private ExtensionIndex.Entry createIndexEntry(final String name, final TypeElement element) {
+        final ArrayList<ExtensionIndex.Condition> conditions = new ArrayList<>();
+        for (final ExtensionCondition condition : element.getAnnotationsByType(ExtensionCondition.class)) {
+            conditions.add(new ExtensionIndex.Condition(condition.name(), condition.condition(), condition.activeByDefault()));
+        }
+        final ArrayList<String[]> constructors = new ArrayList<>();
+        for (final Element enclosed : element.getEnclosedElements()) {
+            if (enclosed.getKind() != ElementKind.CONSTRUCTOR || !enclosed.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            final List<? extends VariableElement> parameters = ((ExecutableElement) enclosed).getParameters();
+            final String[] types = new String[parameters.size()];
+            for (int index = 0; index < types.length; index++) {
+                types[index] = typeHelper.erasure(parameters.get(index).asType()).toString();
+            }
+            constructors.add(types);
+        }
+        log(Kind.NOTE, "Indexed '%s' with %s condition(s) and %s constructor(s)", name, conditions.size(), constructors.size());
+        return new ExtensionIndex.Entry(name, conditions, constructors);
+    }
+
+    private void createFactory(final TypeElement pointElement, final List<String> implementations) throws IOException {
+        final String factoryName = extensionFactoryName(elementHelper.getBinaryName(pointElement).toString());
+        final String packageName = elementHelper.getPackageOf(pointElement).getQualifiedName().toString();
+        final StringBuilder cases = new StringBuilder();
+        final StringBuilder types = new StringBuilder();
+        int amount = 0;
+        for (int index = 0; index < implementations.size(); index++) {
+            final TypeElement element = extensions.get(implementations.get(index));
+            final String arguments = factoryArguments(element);
+            if (arguments == null) {
+                log(Kind.NOTE, "'%s' has no accessible constructor, it will be created through reflection", element);
+                continue;
+            }
+            cases.append("        case ").append(index).append(":\n            return new ").append(element.getQualifiedName()).append('(')
+                .append(arguments).append(");\n");
+            types.append("        case ").append(index).append(":\n            return \"").append(implementations.get(index)).append("\";\n");
+            amount++;
+        }
+        if (amount == 0) {
+            return;
+        }
+        log(Kind.NOTE, "Generating ExtensionFactory '%s' (%s of %s)", factoryName, amount, implementations.size());
+        final JavaFileObject file = processingEnv.getFiler().createSourceFile(factoryName, pointElement);
+        try (BufferedWriter writer = new BufferedWriter(file.openWriter())) {
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("// Generated by " + ExtensionProcessor.class.getSimpleName() + ", do not edit\n");
+            writer.write("public final class " + factoryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + " implements "
+                + IExtensionFactory.class.getName() + " {\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public " + IExtension.class.getName() + " create(final int index, final " + PLUGIN_TYPE
+                + "<?> plugin) throws Throwable {\n");
+            writer.write("        switch (index) {\n");
+            writer.write(cases.toString());
+            writer.write("        default:\n            return null;\n        }\n    }\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public String type(final int index) {\n");
+            writer.write("        switch (index) {\n");
+            writer.write(types.toString());
+            writer.write("        default:\n            return null;\n        }\n    }\n\n}\n");
+        }
+    }
+
+    private String factoryArguments(final TypeElement element) {
+        if (pluginType == null || !isAccessible(element)) {
+            return null;
+        }
+        String arguments = null;
+        int satisfied = -1;
+        for (final Element enclosed : element.getEnclosedElements()) {
+            if (enclosed.getKind() != ElementKind.CONSTRUCTOR || !enclosed.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            final List<? extends VariableElement> parameters = ((ExecutableElement) enclosed).getParameters();
+            if (parameters.size() <= satisfied) {
+                continue;
+            }
+            final StringBuilder builder = new StringBuilder();
+            for (final VariableElement parameter : parameters) {
+                final TypeMirror type = typeHelper.erasure(parameter.asType());
+                if (builder.length() != 0) {
+                    builder.append(", ");
+                }
+                if (typeHelper.isAssignable(pluginType, type)) {
+                    builder.append("plugin");
+                } else if (typeHelper.isAssignable(type, pluginType)) {
+                    builder.append('(').append(type).append(") plugin");
+                } else {
+                    builder.setLength(0);
+                    break;
+                }
+            }
+            if (builder.length() == 0 && !parameters.isEmpty()) {
+                continue;
+            }
+            arguments = builder.toString();
+            satisfied = parameters.size();
+        }
+        return arguments;
+    }
+
+    private boolean isAccessible(final TypeElement element) {
+        Element current = element;
+        while (current instanceof TypeElement) {
+            if (!current.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+            final Element enclosing = current.getEnclosingElement();
+            if (enclosing instanceof TypeElement && !current.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+            current = enclosing;
+        }
+        return true;
+    }
+
     /*
      * Logging
      */
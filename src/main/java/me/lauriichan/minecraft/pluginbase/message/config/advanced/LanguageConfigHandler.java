@@ -1,12 +1,15 @@
 package me.lauriichan.minecraft.pluginbase.message.config.advanced;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import me.lauriichan.minecraft.pluginbase.config.Configuration;
 import me.lauriichan.minecraft.pluginbase.config.IConfigHandler;
 import me.lauriichan.minecraft.pluginbase.message.config.basic.MessageConfigHandler;
+import me.lauriichan.minecraft.pluginbase.resource.source.BufferDataSource;
 import me.lauriichan.minecraft.pluginbase.resource.source.FileDataSource;
 import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
 
@@ -41,9 +44,31 @@ final class LanguageConfigHandler implements IConfigHandler {
     @Override
     public void save(final Configuration configuration, final IDataSource source) throws Exception {
         final File rootDir = (File) source.getSource();
+        final BufferDataSource buffer = new BufferDataSource();
         for (final String key : configuration.keySet()) {
-            MessageConfigHandler.MESSAGE.save(configuration.getConfiguration(key), new FileDataSource(new File(rootDir, key + ".json")));
+            MessageConfigHandler.MESSAGE.save(configuration.getConfiguration(key), buffer);
+            final FileDataSource langSource = new FileDataSource(new File(rootDir, key + ".json"));
+            if (isUnchanged(buffer, langSource)) {
+                continue;
+            }
+            langSource.write(buffer.array(), 0, buffer.size());
+        }
+    }
+
+    private boolean isUnchanged(final BufferDataSource buffer, final FileDataSource source) {
+        if (!source.exists()) {
+            return false;
         }
+        try (InputStream stream = source.openReadableStream()) {
+            return buffer.contentEquals(stream);
+        } catch (final IOException exception) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isSingleSource() {
+        return false;
     }
 
 }
@@ -1,11 +1,9 @@
 package me.lauriichan.minecraft.pluginbase.message.config.basic;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.IOException;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import me.lauriichan.minecraft.pluginbase.config.Configuration;
 import me.lauriichan.minecraft.pluginbase.config.IConfigHandler;
@@ -23,81 +21,104 @@ public final class MessageConfigHandler implements IConfigHandler {
 
     @Override
     public void load(final Configuration configuration, final IDataSource source) throws Exception {
-        JsonElement element;
-        try (BufferedReader reader = source.openReader()) {
-            element = json.asJson(reader);
-        }
-        if (!element.isJsonObject()) {
-            throw new IllegalStateException("Config source doesn't contain a JsonObject");
+        try (JsonReader reader = json.newReader(source.openReader())) {
+            if (!Json.isObject(reader)) {
+                throw new IllegalStateException("Config source doesn't contain a JsonObject");
+            }
+            loadToConfig(reader, configuration);
         }
-        loadToConfig(element.getAsJsonObject(), configuration);
     }
 
-    private void loadToConfig(final JsonObject object, final Configuration configuration) {
-        for (final String key : object.keySet()) {
-            final JsonElement element = object.get(key);
-            if (element.isJsonNull()) {
-                continue;
+    private void loadToConfig(final JsonReader reader, final Configuration configuration) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String key = reader.nextName();
+            switch (reader.peek()) {
+            case BEGIN_OBJECT: {
+                // A duplicate key replaces the earlier section instead of merging into it, the same as JsonObject
+                final Configuration section = configuration.getConfiguration(key, true);
+                section.clear();
+                loadToConfig(reader, section);
+                break;
             }
-            if (element.isJsonObject()) {
-                loadToConfig(element.getAsJsonObject(), configuration.getConfiguration(key, true));
-                continue;
+            case BEGIN_ARRAY:
+                configuration.set(key, readLines(reader));
+                break;
+            case BOOLEAN:
+                configuration.set(key, Boolean.toString(reader.nextBoolean()));
+                break;
+            case NUMBER:
+            case STRING:
+                configuration.set(key, reader.nextString());
+                break;
+            default:
+                reader.skipValue();
+                break;
             }
-            if (element.isJsonArray()) {
-                final StringBuilder builder = new StringBuilder();
-                boolean first = true;
-                for (final JsonElement arrayElement : element.getAsJsonArray()) {
-                    if (!arrayElement.isJsonPrimitive()) {
-                        continue;
-                    }
-                    if (first) {
-                        first = false;
-                    } else {
-                        builder.append("\n");
-                    }
-                    builder.append(arrayElement.getAsString());
-                }
-                configuration.set(key, builder.toString());
+        }
+        reader.endObject();
+    }
+
+    private String readLines(final JsonReader reader) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        boolean first = true;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            final String line;
+            switch (reader.peek()) {
+            case BOOLEAN:
+                line = Boolean.toString(reader.nextBoolean());
+                break;
+            case NUMBER:
+            case STRING:
+                line = reader.nextString();
+                break;
+            default:
+                reader.skipValue();
                 continue;
             }
-            configuration.set(key, element.getAsString());
+            if (first) {
+                first = false;
+            } else {
+                builder.append("\n");
+            }
+            builder.append(line);
         }
+        reader.endArray();
+        return builder.toString();
     }
 
     @Override
     public void save(final Configuration configuration, final IDataSource source) throws Exception {
-        final JsonObject root = new JsonObject();
-        saveToObject(root, configuration);
-        try (BufferedWriter writer = source.openWriter()) {
-            writer.write(json.asString(root));
+        try (JsonWriter writer = json.newWriter(source.openWriter())) {
+            saveToWriter(writer, configuration);
         }
     }
 
-    private void saveToObject(final JsonObject object, final Configuration configuration) {
-        String value;
-        String[] lines;
+    private void saveToWriter(final JsonWriter writer, final Configuration configuration) throws IOException {
+        writer.beginObject();
         for (final String key : configuration.keySet()) {
-            if (configuration.isConfiguration(key)) {
-                final JsonObject child = new JsonObject();
-                saveToObject(child, configuration.getConfiguration(key));
-                object.add(key, child);
+            final Object object = configuration.get(key);
+            if (object instanceof final Configuration child) {
+                writer.name(key);
+                saveToWriter(writer, child);
                 continue;
             }
-            value = configuration.get(key, String.class);
-            if (value == null) {
+            if (!(object instanceof final String value)) {
                 continue;
             }
+            writer.name(key);
             if (value.contains("\n")) {
-                lines = value.split("\n");
-                final JsonArray array = new JsonArray();
-                for (final String line : lines) {
-                    array.add(line);
+                writer.beginArray();
+                for (final String line : value.split("\n")) {
+                    writer.value(line);
                 }
-                object.add(key, array);
+                writer.endArray();
                 continue;
             }
-            object.addProperty(key, value);
+            writer.value(value);
         }
+        writer.endObject();
     }
 
 }
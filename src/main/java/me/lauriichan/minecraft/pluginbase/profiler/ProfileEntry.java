@@ -0,0 +1,62 @@
+package me.lauriichan.minecraft.pluginbase.profiler;
+
+public final class ProfileEntry {
+
+    private final String category;
+    private final String name;
+    private final String thread;
+    private final int depth;
+    private final long startNanos;
+    private final long durationNanos;
+    private final long allocatedBytes;
+
+    ProfileEntry(final String category, final String name, final String thread, final int depth, final long startNanos,
+        final long durationNanos, final long allocatedBytes) {
+        this.category = category;
+        this.name = name;
+        this.thread = thread;
+        this.depth = depth;
+        this.startNanos = startNanos;
+        this.durationNanos = durationNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public String category() {
+        return category;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String thread() {
+        return thread;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    public long durationNanos() {
+        return durationNanos;
+    }
+
+    public double durationMillis() {
+        return durationNanos / 1_000_000d;
+    }
+
+    /**
+     * Gets the amount of bytes allocated by the profiled thread
+     * 
+     * @return the allocated bytes or {@code -1} if allocation tracking is not
+     *             supported by the jvm
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+}
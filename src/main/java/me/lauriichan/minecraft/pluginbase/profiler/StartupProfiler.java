@@ -0,0 +1,167 @@
+package me.lauriichan.minecraft.pluginbase.profiler;
+
+import java.io.BufferedWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import me.lauriichan.minecraft.pluginbase.config.handler.JsonConfigHandler;
+import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
+
+public final class StartupProfiler {
+
+    public static final String CATEGORY_PHASE = "phase";
+    public static final String CATEGORY_STEP = "step";
+    public static final String CATEGORY_EXTENSION_POOL = "extension-pool";
+    public static final String CATEGORY_EXTENSION = "extension";
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN;
+
+    static {
+        com.sun.management.ThreadMXBean bean = null;
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof final com.sun.management.ThreadMXBean sunBean
+                && sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                bean = sunBean;
+            }
+        } catch (final LinkageError | UnsupportedOperationException ignore) {
+            // Allocation tracking is not available on this jvm
+        }
+        THREAD_BEAN = bean;
+    }
+
+    @FunctionalInterface
+    public static interface IProfiledTask {
+
+        void run() throws Throwable;
+
+    }
+
+    public final class Section implements AutoCloseable {
+
+        private final String category;
+        private final String name;
+        private final Section parent;
+        private final int depth;
+        private final long start;
+        private final long allocated;
+
+        private boolean closed = false;
+
+        private Section(final String category, final String name, final Section parent) {
+            this.category = category;
+            this.name = name;
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.allocated = allocatedBytes();
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            final long duration = System.nanoTime() - start;
+            final long allocatedNow = allocatedBytes();
+            current.set(parent);
+            synchronized (entries) {
+                entries.add(new ProfileEntry(category, name, Thread.currentThread().getName(), depth, start - origin, duration,
+                    allocated == -1L || allocatedNow == -1L ? -1L : allocatedNow - allocated));
+            }
+        }
+
+    }
+
+    private final ThreadLocal<Section> current = new ThreadLocal<>();
+    private final ArrayList<ProfileEntry> entries = new ArrayList<>();
+    private final long origin = System.nanoTime();
+
+    private volatile boolean finished = false;
+    private volatile long finishedAt = -1L;
+
+    public Section section(final String category, final String name) {
+        if (finished) {
+            return null;
+        }
+        final Section section = new Section(Objects.requireNonNull(category), Objects.requireNonNull(name), current.get());
+        current.set(section);
+        return section;
+    }
+
+    public void profile(final String category, final String name, final IProfiledTask task) throws Throwable {
+        try (Section section = section(category, name)) {
+            task.run();
+        }
+    }
+
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finishedAt = System.nanoTime() - origin;
+        finished = true;
+    }
+
+    public boolean finished() {
+        return finished;
+    }
+
+    public boolean tracksAllocations() {
+        return THREAD_BEAN != null;
+    }
+
+    /**
+     * Gets all recorded entries in the order in which they were completed
+     * 
+     * @return the recorded entries
+     */
+    public List<ProfileEntry> entries() {
+        synchronized (entries) {
+            return Collections.unmodifiableList(new ArrayList<>(entries));
+        }
+    }
+
+    public JsonObject toJson(final String owner) {
+        final List<ProfileEntry> entries = entries();
+        final JsonObject root = new JsonObject();
+        root.addProperty("plugin", owner);
+        root.addProperty("totalNanos", finishedAt == -1L ? System.nanoTime() - origin : finishedAt);
+        root.addProperty("allocationTracking", tracksAllocations());
+        final JsonArray array = new JsonArray();
+        for (final ProfileEntry entry : entries) {
+            final JsonObject object = new JsonObject();
+            object.addProperty("category", entry.category());
+            object.addProperty("name", entry.name());
+            object.addProperty("thread", entry.thread());
+            object.addProperty("depth", entry.depth());
+            object.addProperty("startNanos", entry.startNanos());
+            object.addProperty("durationNanos", entry.durationNanos());
+            object.addProperty("allocatedBytes", entry.allocatedBytes());
+            array.add(object);
+        }
+        root.add("entries", array);
+        return root;
+    }
+
+    public void write(final String owner, final IDataSource source) throws Exception {
+        final String content = JsonConfigHandler.JSON.json().asString(toJson(owner));
+        try (BufferedWriter writer = source.openWriter()) {
+            writer.write(content);
+        }
+    }
+
+    private static long allocatedBytes() {
+        if (THREAD_BEAN == null) {
+            return -1L;
+        }
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+}
@@ -6,7 +6,9 @@ import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
 public interface ISourceProvider {
 
     /**
-     * Provides a data source related to the path
+     * Provides a data source related to the path, the source is cached by the
+     * resource manager and shared between all callers that resolve the same
+     * path
      * 
      * @param  plugin the resource owner
      * @param  path   the path
@@ -1,8 +1,7 @@
 package me.lauriichan.minecraft.pluginbase.resource;
 
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.LongAdder;
 
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import me.lauriichan.minecraft.pluginbase.BasePlugin;
@@ -10,13 +9,23 @@ import me.lauriichan.minecraft.pluginbase.resource.source.IDataSource;
 
 public final class ResourceManager {
 
-    private static final Pattern RESOURCE_PATTERN = Pattern.compile("^(?<type>[a-zA-Z]*):\\/\\/(?<path>.*)$");
+    private static final int CACHE_SIZE = 512;
+
+    private static record CachedSource(String rawPath, int generation, IDataSource source) {}
 
     private final BasePlugin<?> plugin;
     private final Object2ObjectOpenHashMap<String, ISourceProvider> map = new Object2ObjectOpenHashMap<>();
 
     private volatile String defaultProvider;
 
+    // Resolved sources are plain handles, so they can be shared. Entries of an
+    // older generation were resolved with a provider that isn't used anymore.
+    private final CachedSource[] cache = new CachedSource[CACHE_SIZE];
+    private volatile int generation = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
     public ResourceManager(final BasePlugin<?> plugin) {
         this.plugin = plugin;
     }
@@ -27,6 +36,7 @@ public final class ResourceManager {
 
     public void setDefault(final String defaultProvider) {
         this.defaultProvider = defaultProvider;
+        invalidateCache();
     }
 
     public ISourceProvider getProvider(final String providerName) {
@@ -41,23 +51,82 @@ public final class ResourceManager {
             throw new IllegalArgumentException("There is already a source provider for type '" + type + "'!");
         }
         map.put(type, Objects.requireNonNull(provider));
+        invalidateCache();
+    }
+
+    /**
+     * Replaces the source provider of a type or registers it if there is none
+     * yet
+     * 
+     * @param  type     the resource type
+     * @param  provider the new source provider
+     * 
+     * @return          the previous source provider or {@code null}
+     */
+    public ISourceProvider replace(final String type, final ISourceProvider provider) {
+        if (type == null || type.isBlank()) {
+            throw new IllegalArgumentException("Type can't be null or blank!");
+        }
+        final ISourceProvider previous = map.put(type, Objects.requireNonNull(provider));
+        invalidateCache();
+        return previous;
+    }
+
+    /**
+     * Drops all resolved data sources, the next lookup of each path asks the
+     * source provider again
+     */
+    public void invalidateCache() {
+        generation++;
+    }
+
+    public long cacheHits() {
+        return hits.sum();
+    }
+
+    public long cacheMisses() {
+        return misses.sum();
     }
 
     public IDataSource resolve(final String rawPath) {
+        final int slot = spread(rawPath.hashCode()) & (CACHE_SIZE - 1);
+        final int currentGeneration = generation;
+        CachedSource cached = cache[slot];
+        if (cached != null && cached.generation() == currentGeneration && cached.rawPath().equals(rawPath)) {
+            hits.increment();
+            return cached.source();
+        }
+        misses.increment();
+        final IDataSource source = resolveUncached(rawPath);
+        // Racy but safe, a lost update only costs another lookup
+        cache[slot] = new CachedSource(rawPath, currentGeneration, source);
+        return source;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ hash >>> 16;
+    }
+
+    private IDataSource resolveUncached(final String rawPath) {
         final int index = rawPath.indexOf("://");
         if (index == -1) {
             return resolve(defaultProvider, rawPath);
         }
-        final Matcher match = RESOURCE_PATTERN.matcher(rawPath);
-        if (!match.matches()) {
-            return resolve(defaultProvider, rawPath.substring(index + 3));
-        }
-        final String type = match.group("type");
-        final String path = match.group("path");
-        if (type.isBlank()) {
+        final String path = rawPath.substring(index + 3);
+        if (index == 0 || !isType(rawPath, index)) {
             return resolve(defaultProvider, path);
         }
-        return resolve(type, path);
+        return resolve(rawPath.substring(0, index), path);
+    }
+
+    private static boolean isType(final String rawPath, final int length) {
+        for (int index = 0; index < length; index++) {
+            final char character = rawPath.charAt(index);
+            if ((character < 'a' || character > 'z') && (character < 'A' || character > 'Z')) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private IDataSource resolve(final String type, final String path) {
@@ -0,0 +1,129 @@
+package me.lauriichan.minecraft.pluginbase.resource.source;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public final class BufferDataSource implements IDataSource {
+
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        public Buffer(final int size) {
+            super(size);
+        }
+
+        public byte[] array() {
+            return buf;
+        }
+
+    }
+
+    private final Buffer buffer;
+
+    public BufferDataSource() {
+        this(8192);
+    }
+
+    public BufferDataSource(final int initialSize) {
+        this.buffer = new Buffer(initialSize);
+    }
+
+    /**
+     * Creates a buffer that initially contains a copy of the specified content
+     *
+     * @param content the content
+     */
+    public BufferDataSource(final byte[] content) {
+        this.buffer = new Buffer(content.length);
+        buffer.write(content, 0, content.length);
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public Object getSource() {
+        return buffer;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return true;
+    }
+
+    /**
+     * Opens a stream that replaces the current content of the buffer
+     */
+    @Override
+    public OutputStream openWritableStream() throws IOException {
+        buffer.reset();
+        return buffer;
+    }
+
+    @Override
+    public boolean isReadable() {
+        return true;
+    }
+
+    @Override
+    public InputStream openReadableStream() throws IOException {
+        return new ByteArrayInputStream(buffer.array(), 0, buffer.size());
+    }
+
+    @Override
+    public byte[] readAllBytes() throws IOException {
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Gets the backing array of the buffer, only the first {@link #size()}
+     * bytes are valid
+     *
+     * @return the backing array
+     */
+    public byte[] array() {
+        return buffer.array();
+    }
+
+    public int size() {
+        return buffer.size();
+    }
+
+    public void writeTo(final OutputStream stream) throws IOException {
+        buffer.writeTo(stream);
+    }
+
+    /**
+     * Checks if the content of a stream is equal to the content of this buffer
+     *
+     * @param  stream      the stream to compare with
+     *
+     * @return             {@code true} if both contain the same bytes otherwise
+     *                         {@code false}
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean contentEquals(final InputStream stream) throws IOException {
+        final byte[] content = buffer.array();
+        final int size = buffer.size();
+        final byte[] chunk = new byte[Math.min(Math.max(size, 1), 8192)];
+        int offset = 0;
+        int read;
+        while ((read = stream.read(chunk)) != -1) {
+            if (offset + read > size) {
+                return false;
+            }
+            if (Arrays.mismatch(chunk, 0, read, content, offset, offset + read) != -1) {
+                return false;
+            }
+            offset += read;
+        }
+        return offset == size;
+    }
+
+}
@@ -0,0 +1,85 @@
+package me.lauriichan.minecraft.pluginbase.resource.source;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/*
+ * Read-only channel over a byte array, the array is never modified
+ */
+final class ByteArrayChannel implements SeekableByteChannel {
+
+    private final byte[] data;
+    private final int length;
+
+    private long position = 0;
+    private volatile boolean open = true;
+
+    ByteArrayChannel(final byte[] data, final int length) {
+        this.data = data;
+        this.length = length;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+    }
+
+    @Override
+    public int read(final ByteBuffer buffer) throws IOException {
+        ensureOpen();
+        if (position >= length) {
+            return -1;
+        }
+        final int amount = (int) Math.min(buffer.remaining(), length - position);
+        buffer.put(data, (int) position, amount);
+        position += amount;
+        return amount;
+    }
+
+    @Override
+    public int write(final ByteBuffer buffer) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(final long position) throws IOException {
+        ensureOpen();
+        if (position < 0) {
+            throw new IllegalArgumentException("Position can't be negative");
+        }
+        this.position = position;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return length;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long size) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+}
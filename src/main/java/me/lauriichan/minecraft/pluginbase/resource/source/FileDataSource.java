@@ -4,6 +4,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 
 public final class FileDataSource implements IDataSource {
 
@@ -44,6 +49,11 @@ public final class FileDataSource implements IDataSource {
         return new FileOutputStream(file);
     }
 
+    @Override
+    public void write(final byte[] data, final int offset, final int length) throws IOException {
+        AtomicFiles.write(file.toPath(), data, offset, length);
+    }
+
     @Override
     public boolean isReadable() {
         return file.isFile();
@@ -53,6 +63,23 @@ public final class FileDataSource implements IDataSource {
     public FileInputStream openReadableStream() throws IOException {
         return new FileInputStream(file);
     }
+
+    @Override
+    public byte[] readAllBytes() throws IOException {
+        return Files.readAllBytes(file.toPath());
+    }
+
+    @Override
+    public SeekableByteChannel openChannel() throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    @Override
+    public ByteBuffer map() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
     
     private void ensureCreated() {
         if (!file.exists()) {
@@ -0,0 +1,131 @@
+package me.lauriichan.minecraft.pluginbase.resource.source;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Objects;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Data source that stores the content of another source gzip compressed.
+ * Reads and writes are compressed and decompressed transparently, content
+ * that isn't compressed yet is read as it is and compressed on the next write.
+ */
+public final class GzipDataSource implements IDataSource {
+
+    public static final int DEFAULT_LEVEL = Deflater.DEFAULT_COMPRESSION;
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final class LevelGZIPOutputStream extends GZIPOutputStream {
+
+        public LevelGZIPOutputStream(final OutputStream stream, final int bufferSize, final int level) throws IOException {
+            super(stream, bufferSize);
+            def.setLevel(level);
+        }
+
+    }
+
+    private final IDataSource source;
+    private final int level;
+    private final int bufferSize;
+
+    public GzipDataSource(final IDataSource source) {
+        this(source, DEFAULT_LEVEL, DEFAULT_BUFFER_SIZE);
+    }
+
+    public GzipDataSource(final IDataSource source, final int level) {
+        this(source, level, DEFAULT_BUFFER_SIZE);
+    }
+
+    public GzipDataSource(final IDataSource source, final int level, final int bufferSize) {
+        if ((level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size has to be positive");
+        }
+        this.source = Objects.requireNonNull(source, "Source can't be null");
+        this.level = level;
+        this.bufferSize = bufferSize;
+    }
+
+    public IDataSource source() {
+        return source;
+    }
+
+    public int level() {
+        return level;
+    }
+
+    @Override
+    public boolean exists() {
+        return source.exists();
+    }
+
+    @Override
+    public boolean isResource() {
+        return source.isResource();
+    }
+
+    /**
+     * Gets the source object of the compressed source
+     */
+    @Override
+    public Object getSource() {
+        return source.getSource();
+    }
+
+    @Override
+    public long lastModified() {
+        return source.lastModified();
+    }
+
+    @Override
+    public boolean isWritable() {
+        return source.isWritable();
+    }
+
+    @Override
+    public OutputStream openWritableStream() throws IOException {
+        return new LevelGZIPOutputStream(new BufferedOutputStream(source.openWritableStream(), bufferSize), bufferSize, level);
+    }
+
+    @Override
+    public void write(final byte[] data, final int offset, final int length) throws IOException {
+        // Compress into memory first so that the source can still replace its content atomically
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(length / 4, 512));
+        try (GZIPOutputStream stream = new LevelGZIPOutputStream(compressed, bufferSize, level)) {
+            stream.write(data, offset, length);
+        }
+        source.write(compressed.toByteArray(), 0, compressed.size());
+    }
+
+    @Override
+    public boolean isReadable() {
+        return source.isReadable();
+    }
+
+    @Override
+    public InputStream openReadableStream() throws IOException {
+        final PushbackInputStream stream = new PushbackInputStream(new BufferedInputStream(source.openReadableStream(), bufferSize), 2);
+        final int first = stream.read();
+        final int second = first == -1 ? -1 : stream.read();
+        if (second != -1) {
+            stream.unread(second);
+        }
+        if (first != -1) {
+            stream.unread(first);
+        }
+        if (first != (GZIPInputStream.GZIP_MAGIC & 0xFF) || second != (GZIPInputStream.GZIP_MAGIC >> 8)) {
+            return stream;
+        }
+        return new GZIPInputStream(stream, bufferSize);
+    }
+
+}
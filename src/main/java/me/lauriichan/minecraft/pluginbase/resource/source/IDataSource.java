@@ -7,6 +7,9 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
 
 public interface IDataSource {
 
@@ -63,14 +66,30 @@ public interface IDataSource {
     }
 
     /**
-     * Open a buffered writer for the source
+     * Open a buffered utf-8 writer for the source
      * 
      * @return             the buffered writer
      * 
      * @throws IOException if an I/O error occurs
      */
     default BufferedWriter openWriter() throws IOException {
-        return new BufferedWriter(new OutputStreamWriter(openWritableStream()));
+        return new BufferedWriter(new OutputStreamWriter(openWritableStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Replaces the content of the source, sources that are backed by a file
+     * write a temporary file first and move it into place atomically
+     * 
+     * @param  data        the new content
+     * @param  offset      the offset of the content in the array
+     * @param  length      the length of the content
+     * 
+     * @throws IOException if an I/O error occurs
+     */
+    default void write(final byte[] data, final int offset, final int length) throws IOException {
+        try (OutputStream stream = openWritableStream()) {
+            stream.write(data, offset, length);
+        }
     }
 
     /**
@@ -94,14 +113,56 @@ public interface IDataSource {
     }
 
     /**
-     * Open a buffered reader for the source
+     * Open a buffered utf-8 reader for the source
      * 
      * @return             the buffered reader
      * 
      * @throws IOException if an I/O error occurs
      */
     default BufferedReader openReader() throws IOException {
-        return new BufferedReader(new InputStreamReader(openReadableStream()));
+        return new BufferedReader(new InputStreamReader(openReadableStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the whole content of the source
+     * 
+     * @return             the content
+     * 
+     * @throws IOException if an I/O error occurs
+     */
+    default byte[] readAllBytes() throws IOException {
+        try (InputStream stream = openReadableStream()) {
+            return stream.readAllBytes();
+        }
+    }
+
+    /**
+     * Open a read-only channel for the source, sources that aren't backed by a
+     * file read their content into memory first
+     * 
+     * @return             the channel
+     * 
+     * @throws IOException if an I/O error occurs
+     */
+    default SeekableByteChannel openChannel() throws IOException {
+        final byte[] content = readAllBytes();
+        return new ByteArrayChannel(content, content.length);
+    }
+
+    /**
+     * Gets the content of the source as read-only buffer. Sources that are
+     * backed by a file on the default file system map the file into memory,
+     * all others return a heap buffer.
+     * <p>
+     * Some platforms don't allow a mapped file to be replaced while the buffer
+     * is still reachable, so sources that are written to shouldn't be mapped.
+     * 
+     * @return             the buffer
+     * 
+     * @throws IOException if an I/O error occurs
+     */
+    default ByteBuffer map() throws IOException {
+        return ByteBuffer.wrap(readAllBytes()).asReadOnlyBuffer();
     }
 
 }
\ No newline at end of file
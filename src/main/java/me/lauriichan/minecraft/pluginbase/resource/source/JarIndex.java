@@ -0,0 +1,156 @@
+package me.lauriichan.minecraft.pluginbase.resource.source;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+/**
+ * Index of the file entries of a jar that is built once from the central
+ * directory. Small entries that aren't classes can be preloaded, reads of those
+ * are served from memory instead of inflating them again.
+ */
+public final class JarIndex {
+
+    public static final int DEFAULT_PRELOAD_LIMIT = 64 * 1024;
+
+    public static final class Entry {
+
+        private final String name;
+        private final long size;
+        private final long crc;
+        private final long lastModified;
+        private final byte[] content;
+
+        private Entry(final String name, final long size, final long crc, final long lastModified, final byte[] content) {
+            this.name = name;
+            this.size = size;
+            this.crc = crc;
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public long crc() {
+            return crc;
+        }
+
+        public long lastModified() {
+            return lastModified;
+        }
+
+        public boolean isPreloaded() {
+            return content != null;
+        }
+
+        /*
+         * Never handed out of this package as the array is shared by all readers
+         */
+        byte[] content() {
+            return content;
+        }
+
+    }
+
+    /**
+     * Builds the index of a jar file
+     *
+     * @param  file         the jar file
+     * @param  preloadLimit the maximum size of entries that are preloaded, 0
+     *                          disables preloading
+     *
+     * @return              the index
+     *
+     * @throws IOException  if the jar can't be read
+     */
+    public static JarIndex build(final File file, final int preloadLimit) throws IOException {
+        final Object2ObjectOpenHashMap<String, Entry> entries = new Object2ObjectOpenHashMap<>();
+        long preloaded = 0;
+        try (ZipFile zip = new ZipFile(file)) {
+            final Enumeration<? extends ZipEntry> enumeration = zip.entries();
+            while (enumeration.hasMoreElements()) {
+                final ZipEntry entry = enumeration.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                final String name = entry.getName();
+                final long size = entry.getSize();
+                byte[] content = null;
+                // Classes are read by the class loader and never through the index
+                if (size >= 0 && size <= preloadLimit && !name.endsWith(".class")) {
+                    try (InputStream stream = zip.getInputStream(entry)) {
+                        content = stream.readAllBytes();
+                    }
+                    if (isIntact(entry, content)) {
+                        preloaded += content.length;
+                    } else {
+                        // Left to the jar file system, which reports the damaged entry when it is read
+                        content = null;
+                    }
+                }
+                // Same time as the jar file system reports, which prefers the extended timestamp over the dos time
+                final FileTime time = entry.getLastModifiedTime();
+                entries.put(name, new Entry(name, size, entry.getCrc(), time == null ? entry.getTime() : time.toMillis(), content));
+            }
+        }
+        entries.trim();
+        return new JarIndex(entries, preloaded);
+    }
+
+    private static boolean isIntact(final ZipEntry entry, final byte[] content) {
+        if (content.length != entry.getSize()) {
+            return false;
+        }
+        if (entry.getCrc() == -1) {
+            return true;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue() == entry.getCrc();
+    }
+
+    private final Object2ObjectOpenHashMap<String, Entry> entries;
+    private final long preloadedBytes;
+
+    private JarIndex(final Object2ObjectOpenHashMap<String, Entry> entries, final long preloadedBytes) {
+        this.entries = entries;
+        this.preloadedBytes = preloadedBytes;
+    }
+
+    public Entry entry(final String name) {
+        return entries.get(name.startsWith("/") ? name.substring(1) : name);
+    }
+
+    public Entry entry(final Path path) {
+        return entry(path.toAbsolutePath().normalize().toString());
+    }
+
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long preloadedBytes() {
+        return preloadedBytes;
+    }
+
+}
@@ -0,0 +1,121 @@
+package me.lauriichan.minecraft.pluginbase.resource.source;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import me.lauriichan.minecraft.pluginbase.resource.store.KeyValueStore;
+
+/**
+ * Data source that is backed by a single key of a {@link KeyValueStore}.
+ * <p>
+ * A source that is created with a store supplier looks the store up on every
+ * access, so it keeps working after the store was closed and opened again.
+ * This is how {@code kv://} sources are created. A source that is bound to a
+ * store instance fails once that instance is closed and has to be resolved
+ * again.
+ */
+public final class KeyValueDataSource implements IDataSource {
+
+    private final class ValueStream extends ByteArrayOutputStream {
+
+        private boolean closed = false;
+
+        public ValueStream() {
+            super(512);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            store().put(key, buf, 0, count);
+        }
+
+    }
+
+    private final Supplier<KeyValueStore> store;
+    private final String key;
+
+    public KeyValueDataSource(final KeyValueStore store, final String key) {
+        Objects.requireNonNull(store, "Store can't be null");
+        this.store = () -> store;
+        this.key = Objects.requireNonNull(key, "Key can't be null");
+    }
+
+    public KeyValueDataSource(final Supplier<KeyValueStore> store, final String key) {
+        this.store = Objects.requireNonNull(store, "Store supplier can't be null");
+        this.key = Objects.requireNonNull(key, "Key can't be null");
+    }
+
+    public KeyValueStore store() {
+        return store.get();
+    }
+
+    public String key() {
+        return key;
+    }
+
+    @Override
+    public boolean exists() {
+        return store().contains(key);
+    }
+
+    /**
+     * Gets the location of the value in the format {@code <store file>#<key>}
+     */
+    @Override
+    public Object getSource() {
+        return store().file() + "#" + key;
+    }
+
+    @Override
+    public long lastModified() {
+        return store().lastModified(key);
+    }
+
+    @Override
+    public boolean isWritable() {
+        return store().isOpen();
+    }
+
+    /**
+     * Opens a stream that replaces the value once it is closed
+     */
+    @Override
+    public OutputStream openWritableStream() throws IOException {
+        return new ValueStream();
+    }
+
+    @Override
+    public void write(final byte[] data, final int offset, final int length) throws IOException {
+        store().put(key, data, offset, length);
+    }
+
+    @Override
+    public boolean isReadable() {
+        return store().contains(key);
+    }
+
+    @Override
+    public InputStream openReadableStream() throws IOException {
+        return new ByteArrayInputStream(readAllBytes());
+    }
+
+    @Override
+    public byte[] readAllBytes() throws IOException {
+        final byte[] value = store().get(key);
+        if (value == null) {
+            throw new FileNotFoundException(String.valueOf(getSource()));
+        }
+        return value;
+    }
+
+}
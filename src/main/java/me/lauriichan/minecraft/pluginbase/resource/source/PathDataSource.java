@@ -1,8 +1,13 @@
 package me.lauriichan.minecraft.pluginbase.resource.source;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
@@ -12,18 +17,26 @@ public final class PathDataSource implements IDataSource {
 
     private final Path path;
 
+    // Preloaded jar entry, reads are served from its content until the path is written to
+    private volatile JarIndex.Entry preloaded;
+
     public PathDataSource(final Path path) {
+        this(path, null);
+    }
+
+    public PathDataSource(final Path path, final JarIndex.Entry entry) {
         this.path = path;
+        this.preloaded = entry != null && entry.isPreloaded() ? entry : null;
     }
 
     @Override
     public boolean exists() {
-        return Files.exists(path);
+        return preloaded != null || Files.exists(path);
     }
 
     @Override
     public boolean isResource() {
-        return !Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+        return preloaded != null || !Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
     }
 
     @Override
@@ -33,6 +46,10 @@ public final class PathDataSource implements IDataSource {
 
     @Override
     public long lastModified() {
+        final JarIndex.Entry entry = preloaded;
+        if (entry != null) {
+            return entry.lastModified();
+        }
         try {
             return Files.getLastModifiedTime(path, LinkOption.NOFOLLOW_LINKS).toMillis();
         } catch (final IOException e) {
@@ -50,19 +67,66 @@ public final class PathDataSource implements IDataSource {
         if (!isWritable()) {
             throw new UnsupportedOperationException("Path can not be written to");
         }
+        preloaded = null;
         ensureCreated();
         return path.getFileSystem().provider().newOutputStream(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
     }
 
+    @Override
+    public void write(final byte[] data, final int offset, final int length) throws IOException {
+        if (Files.exists(path) && !isWritable()) {
+            throw new UnsupportedOperationException("Path can not be written to");
+        }
+        preloaded = null;
+        AtomicFiles.write(path, data, offset, length);
+    }
+
     @Override
     public boolean isReadable() {
-        return Files.isReadable(path);
+        return preloaded != null || Files.isReadable(path);
     }
 
     @Override
     public InputStream openReadableStream() throws IOException {
+        final JarIndex.Entry entry = preloaded;
+        if (entry != null) {
+            return new ByteArrayInputStream(entry.content());
+        }
         return path.getFileSystem().provider().newInputStream(path, StandardOpenOption.READ);
     }
+
+    @Override
+    public byte[] readAllBytes() throws IOException {
+        final JarIndex.Entry entry = preloaded;
+        if (entry != null) {
+            return entry.content().clone();
+        }
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public SeekableByteChannel openChannel() throws IOException {
+        final JarIndex.Entry entry = preloaded;
+        if (entry != null) {
+            return new ByteArrayChannel(entry.content(), entry.content().length);
+        }
+        return Files.newByteChannel(path, StandardOpenOption.READ);
+    }
+
+    @Override
+    public ByteBuffer map() throws IOException {
+        final JarIndex.Entry entry = preloaded;
+        if (entry != null) {
+            return ByteBuffer.wrap(entry.content()).asReadOnlyBuffer();
+        }
+        if (path.getFileSystem() != FileSystems.getDefault()) {
+            // Entries of the jar file system can't be mapped
+            return ByteBuffer.wrap(Files.readAllBytes(path)).asReadOnlyBuffer();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
     
     private void ensureCreated() throws IOException {
         if (!Files.exists(path)) {
@@ -0,0 +1,502 @@
+package me.lauriichan.minecraft.pluginbase.resource.store;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import me.lauriichan.laylib.logger.ISimpleLogger;
+
+/**
+ * Embedded key value store that keeps all values in a single append-only log
+ * file with an in-memory index. Updating a key only appends one record, records
+ * that were superseded are dropped by compacting the log once they make up
+ * most of it.
+ * <p>
+ * Every record is checked with a crc32c checksum. Opening a store replays the
+ * log and cuts off everything after the first incomplete or broken record,
+ * which is what remains of a write that was interrupted by a crash.
+ */
+public final class KeyValueStore implements Closeable {
+
+    /*
+     * File layout:
+     *   int magic, int version, records...
+     *
+     * Record layout:
+     *   int crc32c of the rest of the record, byte type, int key length,
+     *   int value length, long modification time, key, value
+     */
+    private static final int MAGIC = 0x50424B56;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 21;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private static final long COMPACT_MIN_GARBAGE = 1024 * 1024;
+
+    private static record Location(long position, int recordSize, int length, long lastModified) {
+
+        long valuePosition() {
+            return position + recordSize - length;
+        }
+
+    }
+
+    public static KeyValueStore open(final Path file) throws IOException {
+        return open(file, false, null);
+    }
+
+    public static KeyValueStore open(final Path file, final boolean sync) throws IOException {
+        return open(file, sync, null);
+    }
+
+    /**
+     * Opens a store and recovers its index from the log
+     *
+     * @param  file        the log file, it is created if it doesn't exist
+     * @param  sync        {@code true} if every write should be forced to the
+     *                         disk before it returns
+     * @param  logger      the logger that automatic compaction failures are
+     *                         reported to or {@code null}
+     *
+     * @return             the store
+     *
+     * @throws IOException if the file isn't a store or can't be read
+     */
+    public static KeyValueStore open(final Path file, final boolean sync, final ISimpleLogger logger) throws IOException {
+        final KeyValueStore store = new KeyValueStore(file.toAbsolutePath(), sync, logger);
+        try {
+            store.recover();
+        } catch (final IOException exception) {
+            store.channel.close();
+            throw exception;
+        }
+        return store;
+    }
+
+    private final Path file;
+    private final boolean sync;
+    private final ISimpleLogger logger;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Object2ObjectOpenHashMap<String, Location> index = new Object2ObjectOpenHashMap<>();
+    private FileChannel channel;
+    private long size;
+    private long liveBytes;
+    private long lastModified;
+    private long recoveredBytes;
+    private long compactionBackoff;
+    private volatile boolean open = true;
+
+    private KeyValueStore(final Path file, final boolean sync, final ISimpleLogger logger) throws IOException {
+        this.file = file;
+        this.sync = sync;
+        this.logger = logger;
+        final Path parent = file.getParent();
+        if (parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+        // Left over from a compaction that didn't finish, the log itself is still intact
+        Files.deleteIfExists(compactionFile());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private Path compactionFile() {
+        return file.resolveSibling("." + file.getFileName() + ".compact");
+    }
+
+    /*
+     * Recovery
+     */
+
+    private void recover() throws IOException {
+        final long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE) {
+            channel.truncate(0);
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(channel, header, 0);
+            channel.force(true);
+            size = HEADER_SIZE;
+            return;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("File '" + file + "' is not a key value store");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported key value store version " + header.getInt(4) + " of '" + file + "'");
+        }
+        final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        final CRC32C crc = new CRC32C();
+        long position = HEADER_SIZE;
+        while (fileSize - position >= RECORD_HEADER_SIZE) {
+            readFully(channel, recordHeader.clear(), position);
+            final int checksum = recordHeader.getInt(0);
+            final byte type = recordHeader.get(4);
+            final int keyLength = recordHeader.getInt(5);
+            final int valueLength = recordHeader.getInt(9);
+            final long modified = recordHeader.getLong(13);
+            if ((type != PUT && type != DELETE) || keyLength <= 0 || valueLength < 0
+                || fileSize - position - RECORD_HEADER_SIZE < (long) keyLength + valueLength) {
+                break;
+            }
+            final int recordSize = RECORD_HEADER_SIZE + keyLength + valueLength;
+            final ByteBuffer body = ByteBuffer.allocate(keyLength + valueLength);
+            readFully(channel, body, position + RECORD_HEADER_SIZE);
+            crc.reset();
+            crc.update(recordHeader.array(), 4, RECORD_HEADER_SIZE - 4);
+            crc.update(body.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            final String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+            final Location previous;
+            if (type == PUT) {
+                previous = index.put(key, new Location(position, recordSize, valueLength, modified));
+                liveBytes += recordSize;
+            } else {
+                previous = index.remove(key);
+            }
+            if (previous != null) {
+                liveBytes -= previous.recordSize();
+            }
+            lastModified = Math.max(lastModified, modified);
+            position += recordSize;
+        }
+        if (position < fileSize) {
+            // Incomplete or broken tail of a write that didn't finish
+            recoveredBytes = fileSize - position;
+            channel.truncate(position);
+            channel.force(true);
+        }
+        size = position;
+    }
+
+    /*
+     * Access
+     */
+
+    public Path file() {
+        return file;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Gets the amount of bytes that were cut off from the end of the log when
+     * the store was opened
+     *
+     * @return the amount of dropped bytes
+     */
+    public long recoveredBytes() {
+        return recoveredBytes;
+    }
+
+    public boolean contains(final String key) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long lastModified(final String key) {
+        lock.readLock().lock();
+        try {
+            final Location location = index.get(key);
+            return location == null ? -1L : location.lastModified();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> keys() {
+        lock.readLock().lock();
+        try {
+            return new ObjectOpenHashSet<>(index.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the value of a key
+     *
+     * @param  key         the key
+     *
+     * @return             a copy of the value or {@code null} if the key doesn't
+     *                         exist
+     *
+     * @throws IOException if the value can't be read
+     */
+    public byte[] get(final String key) throws IOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            final Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate(location.length());
+            readFully(channel, buffer, location.valuePosition());
+            return buffer.array();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(final String key, final byte[] value) throws IOException {
+        put(key, value, 0, value.length);
+    }
+
+    public void put(final String key, final byte[] value, final int offset, final int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, value.length);
+        append(PUT, key, value, offset, length);
+    }
+
+    /**
+     * Removes a key from the store
+     *
+     * @param  key         the key
+     *
+     * @return             {@code true} if the key existed otherwise
+     *                         {@code false}
+     *
+     * @throws IOException if the removal can't be written
+     */
+    public boolean delete(final String key) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!index.containsKey(key)) {
+                return false;
+            }
+            append(DELETE, key, null, 0, 0);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(final byte type, final String key, final byte[] value, final int offset, final int length) throws IOException {
+        final byte[] keyBytes = Objects.requireNonNull(key, "Key can't be null").getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length == 0) {
+            throw new IllegalArgumentException("Key can't be empty");
+        }
+        final int recordSize = RECORD_HEADER_SIZE + keyBytes.length + length;
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            final long modified = lastModified = Math.max(System.currentTimeMillis(), lastModified + 1);
+            final ByteBuffer record = ByteBuffer.allocate(recordSize);
+            record.putInt(0).put(type).putInt(keyBytes.length).putInt(length).putLong(modified).put(keyBytes);
+            if (value != null) {
+                record.put(value, offset, length);
+            }
+            final CRC32C crc = new CRC32C();
+            crc.update(record.array(), 4, recordSize - 4);
+            record.putInt(0, (int) crc.getValue()).flip();
+            writeFully(channel, record, size);
+            if (sync) {
+                channel.force(false);
+            }
+            final Location previous;
+            if (type == PUT) {
+                previous = index.put(key, new Location(size, recordSize, length, modified));
+                liveBytes += recordSize;
+            } else {
+                previous = index.remove(key);
+            }
+            if (previous != null) {
+                liveBytes -= previous.recordSize();
+            }
+            size += recordSize;
+            final long garbage = size - HEADER_SIZE - liveBytes;
+            if (garbage >= COMPACT_MIN_GARBAGE + compactionBackoff && garbage > liveBytes) {
+                try {
+                    compactLocked();
+                    compactionBackoff = 0;
+                } catch (final IOException exception) {
+                    // The record itself was written, only the cleanup failed. Try again once more garbage piled up.
+                    compactionBackoff = garbage;
+                    if (logger != null) {
+                        logger.warning("Failed to compact key value store '{0}'", exception, file);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Compaction
+     */
+
+    /**
+     * Rewrites the log so that it only contains the current value of every
+     * key. This happens automatically once superseded records make up more than
+     * half of the log.
+     *
+     * @throws IOException if the log can't be rewritten
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            compactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        final Path temp = compactionFile();
+        final Object2ObjectOpenHashMap<String, Location> compacted = new Object2ObjectOpenHashMap<>(index.size());
+        long position = HEADER_SIZE;
+        try (FileChannel output = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+            writeFully(output, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+            for (final Object2ObjectMap.Entry<String, Location> entry : index.object2ObjectEntrySet()) {
+                final Location location = entry.getValue();
+                // Records are copied as they are, so their checksums stay valid
+                long copied = 0;
+                while (copied < location.recordSize()) {
+                    copied += channel.transferTo(location.position() + copied, location.recordSize() - copied,
+                        output.position(position + copied));
+                }
+                compacted.put(entry.getKey(), new Location(position, location.recordSize(), location.length(), location.lastModified()));
+                position += location.recordSize();
+            }
+            output.force(true);
+        } catch (final IOException exception) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (final IOException cleanupException) {
+                exception.addSuppressed(cleanupException);
+            }
+            throw exception;
+        }
+        try {
+            channel.close();
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException exception) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (final IOException exception) {
+            // The old log is still in place, keep using it
+            try {
+                reopen();
+                Files.deleteIfExists(temp);
+            } catch (final IOException cleanupException) {
+                exception.addSuppressed(cleanupException);
+            }
+            throw exception;
+        }
+        reopen();
+        index = compacted;
+        size = position;
+        liveBytes = position - HEADER_SIZE;
+    }
+
+    private void reopen() throws IOException {
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (final IOException exception) {
+            // Without a channel the store can't be used anymore and has to be opened again
+            open = false;
+            throw exception;
+        }
+    }
+
+    /*
+     * Lifecycle
+     */
+
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            channel.force(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!open) {
+                return;
+            }
+            open = false;
+            try {
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Helper
+     */
+
+    private void ensureOpen() throws IOException {
+        if (!open) {
+            throw new IOException("Key value store '" + file + "' is closed");
+        }
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read == -1) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+}
@@ -1,14 +1,29 @@
 package me.lauriichan.minecraft.pluginbase.util;
 
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 public final class Json {
 
+    public static boolean isObject(final JsonReader reader) throws IOException {
+        try {
+            return reader.peek() == JsonToken.BEGIN_OBJECT;
+        } catch (final EOFException exp) {
+            // Empty document, parses to JsonNull
+            return false;
+        }
+    }
+
     private final Gson gson;
 
     public Json(final Gson gson) {
@@ -27,6 +42,14 @@ public final class Json {
         return JsonParser.parseReader(gson.newJsonReader(reader));
     }
     
+    public JsonReader newReader(final Reader reader) {
+        return gson.newJsonReader(reader);
+    }
+
+    public JsonWriter newWriter(final Writer writer) throws IOException {
+        return gson.newJsonWriter(writer);
+    }
+
     public String asString(JsonElement element) {
         return gson.toJson(element);
     }